@@ -0,0 +1,69 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# Runs the JMH benchmarks in bench/src on the host JVM, arguments go to JMH (e.g. -prof gc, -p profileCount=8)
+# "bench.sh load [--name value ...]" runs the load driver against simulated cards instead
+
+# ============================================================================
+BENCH_DIR="$(cd "$(dirname "$0")" && pwd)"
+SRC_DIR="$BENCH_DIR/../src"
+STUBS_DIR="$BENCH_DIR/stubs"
+BENCH_SRC_DIR="$BENCH_DIR/src"
+OUT_DIR="$BENCH_DIR/out"
+DEPS_DIR="$BENCH_DIR/deps"
+MAVEN_CENTRAL="https://repo1.maven.org/maven2"
+JMH_VERSION="1.37"
+# ============================================================================
+
+# group/artifact/version, the app ships the same Kotlin, coroutines and Gson
+DEPS=(
+  "org/openjdk/jmh/jmh-core/$JMH_VERSION"
+  "org/openjdk/jmh/jmh-generator-annprocess/$JMH_VERSION"
+  "net/sf/jopt-simple/jopt-simple/5.0.4"
+  "org/apache/commons/commons-math3/3.6.1"
+  "org/jetbrains/kotlin/kotlin-stdlib/2.0.21"
+  "org/jetbrains/kotlinx/kotlinx-coroutines-core-jvm/1.9.0"
+  "com/google/code/gson/gson/2.11.0"
+)
+
+# Sanity: tools present
+command -v java  >/dev/null || { echo "ERROR: java not found"; exit 1; }
+command -v javac >/dev/null || { echo "ERROR: javac not found"; exit 1; }
+command -v curl  >/dev/null || { echo "ERROR: curl not found"; exit 1; }
+
+# Fetch deps once
+mkdir -p "$DEPS_DIR"
+for dep in "${DEPS[@]}"; do
+  version="${dep##*/}"
+  artifact="${dep%/*}"
+  artifact="${artifact##*/}"
+  jar="$DEPS_DIR/$artifact-$version.jar"
+  if [[ ! -f "$jar" ]]; then
+    echo "[deps] $artifact-$version"
+    curl -fsSL -o "$jar.part" "$MAVEN_CENTRAL/$dep/$artifact-$version.jar"
+    mv "$jar.part" "$jar"
+  fi
+done
+
+CP="$(find "$DEPS_DIR" -maxdepth 1 -type f -name '*.jar' | paste -sd: -)"
+
+# Clean + mkdirs
+rm -rf "$OUT_DIR"
+mkdir -p "$OUT_DIR/classes"
+
+# Compile stubs, provider and benchmarks together, JMH generates its harness while at it
+javac \
+  -source 23 -target 23 \
+  -classpath "$CP" \
+  -Xlint:-options \
+  -encoding UTF-8 \
+  -d "$OUT_DIR/classes" \
+  $(find "$STUBS_DIR" "$SRC_DIR" "$BENCH_SRC_DIR" -type f -name '*.java')
+
+# Run
+if [[ "${1:-}" == "load" ]]; then
+  shift
+  java -cp "$OUT_DIR/classes:$CP" im.angry.openeuicc.bridge.LoadDriver "$@"
+else
+  java -cp "$OUT_DIR/classes:$CP" org.openjdk.jmh.Main "$@"
+fi
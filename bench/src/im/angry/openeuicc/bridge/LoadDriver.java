@@ -0,0 +1,349 @@
+package im.angry.openeuicc.bridge;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import android.database.Cursor;
+import android.net.Uri;
+
+import net.typeblog.lpac_jni.LocalProfileInfo;
+
+// Concurrent mixed queries against the provider on simulated cards, reports throughput and tail latency per operation
+public final class LoadDriver
+{
+    private static final String DEFAULT_MIX = "profiles:50,profilesFresh:10,cards:10,enableProfile:10,setProfileNickname:10,downloadProfile:5,deleteProfile:5";
+
+    private record Operation(String name, int weight) { }
+
+    private static final class OperationStats
+    {
+        final Metrics.Histogram latency = new Metrics.Histogram();
+        final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    }
+
+    private final LpaProvider provider;
+    private final SimulatedEuiccChannelManager euiccChannelManager;
+    private final List<Operation> mix;
+    private final int totalWeight;
+    private final int profileCount;
+    private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+    private volatile boolean measuring;
+
+    private LoadDriver(LpaProvider provider, SimulatedEuiccChannelManager euiccChannelManager, List<Operation> mix, int profileCount)
+    {
+        this.provider = provider;
+        this.euiccChannelManager = euiccChannelManager;
+        this.mix = mix;
+        this.totalWeight = mix.stream().mapToInt(Operation::weight).sum();
+        this.profileCount = profileCount;
+
+        for (Operation operation : mix)
+            stats.put(operation.name(), new OperationStats());
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        var options = parseOptions(args);
+
+        int threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "3"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "20"));
+        int cardCount = Integer.parseInt(options.getOrDefault("cards", "2"));
+        int profileCount = Integer.parseInt(options.getOrDefault("profiles", "4"));
+        double smdpFailureRate = Double.parseDouble(options.getOrDefault("smdp-failure-rate", "0"));
+
+        var latency = new SimulatedLatency
+        (
+            Long.parseLong(options.getOrDefault("channel-us", "2000")),
+            Long.parseLong(options.getOrDefault("apdu-us", "3000")),
+            Long.parseLong(options.getOrDefault("smdp-us", "150000"))
+        );
+
+        var euiccChannelManager = new SimulatedEuiccChannelManager(cardCount, profileCount, latency, smdpFailureRate);
+
+        var provider = new LpaProvider();
+        provider.attachInfo(new SimulatedApplication(euiccChannelManager));
+        provider.onCreate();
+
+        var driver = new LoadDriver(provider, euiccChannelManager, parseMix(options.getOrDefault("mix", DEFAULT_MIX)), profileCount);
+
+        System.out.printf
+        (
+            "threads=%d cards=%d profiles=%d warmup=%ds duration=%ds channel=%dus apdu=%dus smdp=%dus smdpFailureRate=%.2f%n%n",
+            threads, cardCount, profileCount, warmupSeconds, durationSeconds,
+            latency.channelMicros(), latency.apduMicros(), latency.smdpMicros(), smdpFailureRate
+        );
+
+        driver.run(threads, warmupSeconds, durationSeconds);
+        driver.printProviderMetrics();
+
+        provider.shutdown();
+        System.exit(0);
+    }
+
+    private void run(int threads, int warmupSeconds, int durationSeconds) throws InterruptedException
+    {
+        long warmupEndsAt = System.nanoTime() + warmupSeconds * 1_000_000_000L;
+        long endsAt = warmupEndsAt + durationSeconds * 1_000_000_000L;
+
+        var workers = new ArrayList<Thread>();
+
+        for (int index = 0; index < threads; index++)
+        {
+            var worker = new Thread(() ->
+            {
+                while (System.nanoTime() < endsAt)
+                    runOnce();
+            }, "load-" + index);
+
+            worker.start();
+            workers.add(worker);
+        }
+
+        Thread.sleep(warmupSeconds * 1_000L);
+        measuring = true;
+
+        long startedAt = System.nanoTime();
+
+        for (Thread worker : workers)
+            worker.join();
+
+        double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+
+        printStats(elapsedSeconds);
+    }
+
+    private void runOnce()
+    {
+        var random = ThreadLocalRandom.current();
+        var operation = pickOperation(random.nextInt(totalWeight));
+        var card = euiccChannelManager.getCards().get(random.nextInt(euiccChannelManager.getCards().size()));
+
+        var uri = buildUri(operation.name(), card, random);
+
+        // nothing to do on this card right now, e.g. no downloaded profile to delete
+        if (uri == null)
+            return;
+
+        long startedAt = System.nanoTime();
+        String error = runQuery(uri);
+        long elapsed = System.nanoTime() - startedAt;
+
+        if (!measuring)
+            return;
+
+        var operationStats = stats.get(operation.name());
+        operationStats.latency.record(elapsed);
+
+        if (error != null)
+            operationStats.errors.computeIfAbsent(error, _ -> new LongAdder()).increment();
+    }
+
+    private Operation pickOperation(int weight)
+    {
+        for (Operation operation : mix)
+        {
+            weight -= operation.weight();
+
+            if (weight < 0)
+                return operation;
+        }
+
+        return mix.get(mix.size() - 1);
+    }
+
+    private Uri buildUri(String operation, SimulatedEuicc card, ThreadLocalRandom random)
+    {
+        var args = new LinkedHashMap<String, String>();
+        String endpoint = operation;
+
+        if (!operation.equals("cards"))
+        {
+            args.put("slot", String.valueOf(card.getSlot()));
+            args.put("port", String.valueOf(card.getPort()));
+        }
+
+        switch (operation)
+        {
+            case "profilesFresh" ->
+            {
+                endpoint = "profiles";
+                args.put("fresh", "true");
+            }
+            case "enableProfile" ->
+            {
+                var profile = pickProfile(card, LocalProfileInfo.State.Disabled, random);
+
+                if (profile == null)
+                    return null;
+
+                args.put("iccid", profile.getIccid());
+                args.put("refresh", "false");
+            }
+            case "setProfileNickname" ->
+            {
+                var profile = pickProfile(card, null, random);
+
+                if (profile == null)
+                    return null;
+
+                args.put("iccid", profile.getIccid());
+                args.put("nickname", "Load " + random.nextInt(1000));
+            }
+            case "downloadProfile" ->
+            {
+                // keeps the card from filling up
+                if (card.peekProfiles().size() >= profileCount * 2)
+                    return null;
+
+                args.put("activationCode", "LPA:1$smdp.example.com$LOAD-" + random.nextInt(1_000_000));
+            }
+            case "deleteProfile" ->
+            {
+                if (card.peekProfiles().size() <= profileCount)
+                    return null;
+
+                var profile = pickProfile(card, LocalProfileInfo.State.Disabled, random);
+
+                if (profile == null)
+                    return null;
+
+                args.put("iccid", profile.getIccid());
+            }
+        }
+
+        var uri = new StringBuilder("content://lpa/").append(endpoint);
+        char separator = '?';
+
+        for (var arg : args.entrySet())
+        {
+            uri.append(separator)
+                .append(arg.getKey())
+                .append('=')
+                .append(URLEncoder.encode(arg.getValue(), StandardCharsets.UTF_8));
+
+            separator = '&';
+        }
+
+        return Uri.parse(uri.toString());
+    }
+
+    private static LocalProfileInfo pickProfile(SimulatedEuicc card, LocalProfileInfo.State state, ThreadLocalRandom random)
+    {
+        var profiles = card.peekProfiles().stream()
+            .filter(p -> state == null || p.getState() == state)
+            .toList();
+
+        return profiles.isEmpty() ? null : profiles.get(random.nextInt(profiles.size()));
+    }
+
+    // reads every row like a client would, returns the error code if any
+    private String runQuery(Uri uri)
+    {
+        try (Cursor cursor = provider.query(uri, null, null, null, null))
+        {
+            int errorIndex = cursor.getColumnIndex("error");
+            String error = null;
+
+            while (cursor.moveToNext())
+            {
+                for (int colIndex = 0; colIndex < cursor.getColumnCount(); colIndex++)
+                    cursor.getString(colIndex);
+
+                if (errorIndex >= 0 && !cursor.isNull(errorIndex))
+                    error = cursor.getString(errorIndex);
+            }
+
+            return error;
+        }
+    }
+
+    private void printStats(double elapsedSeconds)
+    {
+        long total = 0;
+
+        System.out.printf("%-20s %8s %8s %10s %10s %10s %10s%n", "operation", "count", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms");
+
+        for (Operation operation : mix)
+        {
+            var operationStats = stats.get(operation.name());
+            var latency = operationStats.latency;
+            long errors = operationStats.errors.values().stream().mapToLong(LongAdder::sum).sum();
+
+            total += latency.getCount();
+
+            System.out.printf
+            (
+                "%-20s %8d %8d %10.1f %10.1f %10.1f %10.1f%n",
+                operation.name(), latency.getCount(), errors,
+                latency.getPercentileMillis(0.50), latency.getPercentileMillis(0.95), latency.getPercentileMillis(0.99), latency.getMaxMillis()
+            );
+
+            for (var error : operationStats.errors.entrySet())
+                System.out.printf("    %-16s %8d%n", error.getKey(), error.getValue().sum());
+        }
+
+        System.out.printf("%n%d operations in %.1fs, %.1f ops/s%n%n", total, elapsedSeconds, total / elapsedSeconds);
+    }
+
+    // the provider's own view, lock wait in particular
+    private void printProviderMetrics()
+    {
+        try (Cursor cursor = provider.query(Uri.parse("content://lpa/metrics"), null, null, null, null))
+        {
+            System.out.printf("%-44s %8s %10s %10s %10s %10s%n", "provider metric", "count", "p50 ms", "p95 ms", "p99 ms", "max ms");
+
+            while (cursor.moveToNext())
+            {
+                if (cursor.isNull(2))
+                {
+                    System.out.printf("%-44s %8d%n", cursor.getString(0), cursor.getLong(1));
+                    continue;
+                }
+
+                System.out.printf
+                (
+                    "%-44s %8d %10.1f %10.1f %10.1f %10.1f%n",
+                    cursor.getString(0), cursor.getLong(1), cursor.getDouble(2), cursor.getDouble(3), cursor.getDouble(4), cursor.getDouble(5)
+                );
+            }
+        }
+    }
+
+    // --name value pairs
+    private static Map<String, String> parseOptions(String[] args)
+    {
+        var options = new LinkedHashMap<String, String>();
+
+        for (int index = 0; index < args.length; index++)
+        {
+            if (!args[index].startsWith("--") || index + 1 >= args.length)
+                throw new IllegalArgumentException("Expected --name value, got " + args[index]);
+
+            options.put(args[index].substring(2), args[++index]);
+        }
+
+        return options;
+    }
+
+    // name:weight,...
+    private static List<Operation> parseMix(String mix)
+    {
+        var operations = new ArrayList<Operation>();
+
+        for (String entry : mix.split(","))
+        {
+            var parts = entry.split(":");
+            operations.add(new Operation(parts[0].trim(), Integer.parseInt(parts[1].trim())));
+        }
+
+        return operations;
+    }
+}
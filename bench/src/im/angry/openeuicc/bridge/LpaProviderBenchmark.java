@@ -0,0 +1,177 @@
+package im.angry.openeuicc.bridge;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+
+import net.typeblog.lpac_jni.LocalProfileInfo;
+
+// Hot path of LpaProvider on the host JVM against a card without latency, private helpers are reached through method handles
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LpaProviderBenchmark
+{
+    // one card holds a handful of profiles, 32 is past what fits on most eUICCs
+    @Param({ "1", "8", "32" })
+    public int profileCount;
+
+    private static final String DOWNLOAD_URI = "content://lpa/downloadProfile?slot=0&port=0"
+        + "&activationCode=LPA%3A1%24smdp.example.com%24MATCHING-ID-0123456789"
+        + "&callbackUrl=https%3A%2F%2Fexample.com%2Fcallback%3Fid%3D42&async=true&json";
+
+    private static final String[] PROJECTION = { "iccid", "nickname" };
+    private static final String[] PRESERVE = { "error" };
+
+    private MethodHandle getArgsFromUri;
+    private MethodHandle dispatch;
+    private MethodHandle projectColumns;
+    private MethodHandle rowsToJson;
+    private MethodHandle profiles;
+
+    private LpaProvider provider;
+    private Uri downloadUri;
+    private Uri profilesUri;
+    private Uri profilesJsonUri;
+    private Map<String, String> jobsArgs;
+    private List<LocalProfileInfo> profileList;
+    private ResultCursor profileRows;
+
+    @Setup
+    public void setUp() throws Throwable
+    {
+        var lookup = MethodHandles.privateLookupIn(LpaProvider.class, MethodHandles.lookup());
+
+        getArgsFromUri = lookup.findStatic(LpaProvider.class, "getArgsFromUri", MethodType.methodType(Map.class, Uri.class));
+        dispatch = lookup.findVirtual(LpaProvider.class, "dispatch", MethodType.methodType(ResultCursor.class, String.class, Map.class));
+        projectColumns = lookup.findStatic(LpaProvider.class, "projectColumns", MethodType.methodType(ResultCursor.class, ResultCursor.class, String[].class, String[].class));
+        rowsToJson = lookup.findStatic(LpaProvider.class, "rowsToJson", MethodType.methodType(String.class, ResultCursor.class));
+        profiles = lookup.findStatic(LpaProvider.class, "profiles", MethodType.methodType(ResultCursor.class, List.class));
+
+        var euiccChannelManager = new SimulatedEuiccChannelManager(1, profileCount, SimulatedLatency.NONE, 0);
+
+        provider = new LpaProvider();
+        provider.attachInfo(new SimulatedApplication(euiccChannelManager));
+        provider.onCreate();
+
+        downloadUri = Uri.parse(DOWNLOAD_URI);
+        profilesUri = Uri.parse("content://lpa/profiles?slot=0&port=0");
+        profilesJsonUri = Uri.parse("content://lpa/profiles?slot=0&port=0&json");
+        jobsArgs = Map.of();
+
+        profileList = euiccChannelManager.getCard(0, 0).getProfiles();
+        profileRows = (ResultCursor) profiles.invokeExact(profileList);
+
+        // fills the profile cache and the preference snapshot
+        drain(provider.query(profilesUri, null, null, null, null), null);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        provider.shutdown();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Map<String, String> argsFromUri() throws Throwable
+    {
+        return (Map<String, String>) getArgsFromUri.invokeExact(downloadUri);
+    }
+
+    @Benchmark
+    public ResultCursor dispatchJobs() throws Throwable
+    {
+        return (ResultCursor) dispatch.invokeExact(provider, "jobs", jobsArgs);
+    }
+
+    @Benchmark
+    public ResultCursor dispatchUnknown() throws Throwable
+    {
+        return (ResultCursor) dispatch.invokeExact(provider, "unknownEndpoint", jobsArgs);
+    }
+
+    @Benchmark
+    public ResultCursor profiles() throws Throwable
+    {
+        return (ResultCursor) profiles.invokeExact(profileList);
+    }
+
+    @Benchmark
+    public ResultCursor projectAllColumns() throws Throwable
+    {
+        return (ResultCursor) projectColumns.invokeExact(profileRows, (String[]) null, PRESERVE);
+    }
+
+    @Benchmark
+    public ResultCursor projectSomeColumns() throws Throwable
+    {
+        return (ResultCursor) projectColumns.invokeExact(profileRows, PROJECTION, PRESERVE);
+    }
+
+    @Benchmark
+    public String json() throws Throwable
+    {
+        return (String) rowsToJson.invokeExact(profileRows);
+    }
+
+    // whole query against the profile cache, read back the way a client would
+    @Benchmark
+    public void queryProfiles(Blackhole blackhole)
+    {
+        drain(provider.query(profilesUri, null, null, null, null), blackhole);
+    }
+
+    @Benchmark
+    public void queryProfilesJson(Blackhole blackhole)
+    {
+        drain(provider.query(profilesJsonUri, null, null, null, null), blackhole);
+    }
+
+    // same query through call, no cursor or column metadata
+    @Benchmark
+    public Bundle callProfiles()
+    {
+        return provider.call("profiles", "slot=0&port=0", null);
+    }
+
+    private static void drain(Cursor cursor, Blackhole blackhole)
+    {
+        while (cursor.moveToNext())
+        {
+            for (int colIndex = 0; colIndex < cursor.getColumnCount(); colIndex++)
+            {
+                var value = cursor.getString(colIndex);
+
+                if (blackhole != null)
+                    blackhole.consume(value);
+            }
+        }
+
+        cursor.close();
+    }
+}
@@ -0,0 +1,100 @@
+package im.angry.openeuicc.bridge;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import android.content.BroadcastReceiver;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+
+import im.angry.openeuicc.OpenEuiccApplication;
+import im.angry.openeuicc.core.EuiccChannelManager;
+import im.angry.openeuicc.di.AppContainer;
+import im.angry.openeuicc.di.UnprivilegedAppContainer;
+
+final class SimulatedApplication extends OpenEuiccApplication
+{
+    private final AppContainer appContainer;
+    // nobody observes on the host
+    private final ContentResolver contentResolver = new ContentResolver() { };
+    private final Map<String, SharedPreferences> sharedPreferences = new HashMap<>();
+    private final File filesDir;
+
+    // a fresh files dir, so nothing is restored from an earlier run
+    SimulatedApplication(EuiccChannelManager euiccChannelManager)
+    {
+        this(euiccChannelManager, new File(System.getProperty("java.io.tmpdir"), "lpa-bridge-" + ProcessHandle.current().pid()));
+    }
+
+    // share a files dir between providers to simulate a process restart
+    SimulatedApplication(EuiccChannelManager euiccChannelManager, File filesDir)
+    {
+        appContainer = new UnprivilegedAppContainer(euiccChannelManager);
+
+        this.filesDir = filesDir;
+        filesDir.mkdirs();
+    }
+
+    @Override
+    public AppContainer getAppContainer() { return appContainer; }
+
+    @Override
+    public Context getApplicationContext() { return this; }
+
+    @Override
+    public ContentResolver getContentResolver() { return contentResolver; }
+
+    // no broadcasts on the host
+    @Override
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter) { return null; }
+
+    @Override
+    public File getFilesDir() { return filesDir; }
+
+    // kept in memory, a host run starts from defaults
+    @Override
+    public synchronized SharedPreferences getSharedPreferences(String name, int mode)
+    {
+        return sharedPreferences.computeIfAbsent(name, _ -> new SimulatedSharedPreferences());
+    }
+
+    private static final class SimulatedSharedPreferences implements SharedPreferences
+    {
+        private final Map<String, Boolean> values = new HashMap<>();
+
+        @Override
+        public synchronized boolean getBoolean(String key, boolean defValue)
+        {
+            return values.getOrDefault(key, defValue);
+        }
+
+        @Override
+        public Editor edit()
+        {
+            var edits = new HashMap<String, Boolean>();
+
+            return new Editor()
+            {
+                @Override
+                public Editor putBoolean(String key, boolean value)
+                {
+                    edits.put(key, value);
+                    return this;
+                }
+
+                @Override
+                public void apply()
+                {
+                    synchronized (SimulatedSharedPreferences.this)
+                    {
+                        values.putAll(edits);
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package im.angry.openeuicc.bridge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import net.typeblog.lpac_jni.LocalProfileAssistant;
+import net.typeblog.lpac_jni.LocalProfileInfo;
+import net.typeblog.lpac_jni.LocalProfileNotification;
+import net.typeblog.lpac_jni.ProfileDownloadCallback;
+
+// One eUICC behind a single transport: operations queue up on the card and pay for their APDUs and SM-DP+ round trips
+final class SimulatedEuicc implements LocalProfileAssistant
+{
+    // APDUs per operation, roughly what lpac exchanges with a real card
+    private static final int GET_EID_APDUS = 2;
+    private static final int GET_PROFILES_APDUS = 6;
+    private static final int GET_NOTIFICATIONS_APDUS = 4;
+    private static final int SWITCH_PROFILE_APDUS = 4;
+    private static final int DELETE_PROFILE_APDUS = 4;
+    private static final int SET_NICKNAME_APDUS = 3;
+    private static final int HANDLE_NOTIFICATION_APDUS = 2;
+    private static final int DELETE_NOTIFICATION_APDUS = 2;
+    private static final int DOWNLOAD_APDUS_PER_STATE = 8;
+
+    private final int slot;
+    private final int port;
+    private final String eid;
+    private final SimulatedLatency latency;
+    private final double smdpFailureRate;
+
+    // guarded by transport
+    private final ReentrantLock transport = new ReentrantLock(true);
+    private final List<LocalProfileInfo> profiles = new ArrayList<>();
+    private final List<LocalProfileNotification> notifications = new ArrayList<>();
+    private long nextSeqNumber = 1;
+    private int nextProfileIndex;
+
+    SimulatedEuicc(int slot, int port, int profileCount, SimulatedLatency latency, double smdpFailureRate)
+    {
+        this.slot = slot;
+        this.port = port;
+        this.eid = String.format("890490320000000000000000%04d%04d", slot, port);
+        this.latency = latency;
+        this.smdpFailureRate = smdpFailureRate;
+
+        for (int index = 0; index < profileCount; index++)
+            profiles.add(createProfile(index == 0 ? LocalProfileInfo.State.Enabled : LocalProfileInfo.State.Disabled, index % 2 == 0 ? "Nickname " + index : ""));
+    }
+
+    int getSlot() { return slot; }
+
+    int getPort() { return port; }
+
+    // what's on the card right now, without going through the transport
+    List<LocalProfileInfo> peekProfiles()
+    {
+        return onCard(0, () -> List.copyOf(profiles));
+    }
+
+    @Override
+    public String getEID()
+    {
+        return onCard(GET_EID_APDUS, () -> eid);
+    }
+
+    @Override
+    public List<LocalProfileInfo> getProfiles()
+    {
+        return onCard(GET_PROFILES_APDUS, () -> List.copyOf(profiles));
+    }
+
+    @Override
+    public List<LocalProfileNotification> getNotifications()
+    {
+        return onCard(GET_NOTIFICATIONS_APDUS, () -> List.copyOf(notifications));
+    }
+
+    @Override
+    public boolean enableProfile(String iccid, boolean refresh)
+    {
+        return onCard(SWITCH_PROFILE_APDUS, () ->
+        {
+            int index = indexOf(iccid);
+
+            if (index < 0 || profiles.get(index).getState() == LocalProfileInfo.State.Enabled)
+                return false;
+
+            for (int other = 0; other < profiles.size(); other++)
+            {
+                if (profiles.get(other).getState() == LocalProfileInfo.State.Enabled)
+                {
+                    profiles.set(other, withState(profiles.get(other), LocalProfileInfo.State.Disabled));
+                    addNotification(LocalProfileNotification.Operation.Disable, profiles.get(other).getIccid());
+                }
+            }
+
+            profiles.set(index, withState(profiles.get(index), LocalProfileInfo.State.Enabled));
+            addNotification(LocalProfileNotification.Operation.Enable, iccid);
+
+            return true;
+        });
+    }
+
+    @Override
+    public boolean deleteProfile(String iccid)
+    {
+        return onCard(DELETE_PROFILE_APDUS, () ->
+        {
+            int index = indexOf(iccid);
+
+            // the card refuses to delete the enabled profile
+            if (index < 0 || profiles.get(index).getState() == LocalProfileInfo.State.Enabled)
+                return false;
+
+            profiles.remove(index);
+            addNotification(LocalProfileNotification.Operation.Delete, iccid);
+
+            return true;
+        });
+    }
+
+    @Override
+    public void setNickname(String iccid, String nickname)
+    {
+        onCard(SET_NICKNAME_APDUS, () ->
+        {
+            int index = indexOf(iccid);
+
+            if (index < 0)
+                throw new IllegalStateException("Profile not found: " + iccid);
+
+            var profile = profiles.get(index);
+
+            profiles.set(index, new LocalProfileInfo
+            (
+                profile.getIccid(),
+                profile.getState(),
+                profile.getName(),
+                nickname,
+                profile.getProviderName(),
+                profile.getIsdpAID(),
+                profile.getProfileClass()
+            ));
+
+            return null;
+        });
+    }
+
+    @Override
+    public void downloadProfile(String smdp, String matchingId, String imei, String confirmationCode, ProfileDownloadCallback callback)
+    {
+        onCard(0, () ->
+        {
+            for (var state : ProfileDownloadCallback.DownloadState.values())
+            {
+                callback.onStateUpdate(state);
+                latency.apdus(DOWNLOAD_APDUS_PER_STATE);
+
+                // everything past preparing talks to the SM-DP+
+                if (state != ProfileDownloadCallback.DownloadState.Preparing)
+                {
+                    latency.smdp();
+
+                    if (ThreadLocalRandom.current().nextDouble() < smdpFailureRate)
+                        throw new IllegalStateException("SM-DP+ " + smdp + " failed while " + state.name().toLowerCase());
+                }
+            }
+
+            var profile = createProfile(LocalProfileInfo.State.Disabled, "");
+            profiles.add(profile);
+            addNotification(LocalProfileNotification.Operation.Install, profile.getIccid());
+
+            return null;
+        });
+    }
+
+    @Override
+    public void handleNotification(LocalProfileNotification notification)
+    {
+        onCard(HANDLE_NOTIFICATION_APDUS, () ->
+        {
+            latency.smdp();
+
+            if (ThreadLocalRandom.current().nextDouble() < smdpFailureRate)
+                throw new IllegalStateException("SM-DP+ " + notification.getNotificationAddress() + " rejected the notification");
+
+            return null;
+        });
+    }
+
+    @Override
+    public boolean deleteNotification(long seqNumber)
+    {
+        return onCard(DELETE_NOTIFICATION_APDUS, () -> notifications.removeIf(n -> n.getSeqNumber() == seqNumber));
+    }
+
+    private <T> T onCard(int apdus, Supplier<T> operation)
+    {
+        transport.lock();
+
+        try
+        {
+            latency.apdus(apdus);
+            return operation.get();
+        }
+        finally
+        {
+            transport.unlock();
+        }
+    }
+
+    private int indexOf(String iccid)
+    {
+        for (int index = 0; index < profiles.size(); index++)
+        {
+            if (profiles.get(index).getIccid().equals(iccid))
+                return index;
+        }
+
+        return -1;
+    }
+
+    private LocalProfileInfo createProfile(LocalProfileInfo.State state, String nickname)
+    {
+        int index = nextProfileIndex++;
+
+        return new LocalProfileInfo
+        (
+            String.format("89%02d%02d%013d", slot, port, index),
+            state,
+            "Profile " + index,
+            nickname,
+            "Carrier " + index % 4,
+            String.format("A0000005591010FFFFFFFF89%08d", index),
+            LocalProfileInfo.Clazz.Operational
+        );
+    }
+
+    private static LocalProfileInfo withState(LocalProfileInfo profile, LocalProfileInfo.State state)
+    {
+        return new LocalProfileInfo
+        (
+            profile.getIccid(),
+            state,
+            profile.getName(),
+            profile.getNickName(),
+            profile.getProviderName(),
+            profile.getIsdpAID(),
+            profile.getProfileClass()
+        );
+    }
+
+    private void addNotification(LocalProfileNotification.Operation operation, String iccid)
+    {
+        notifications.add(new LocalProfileNotification(nextSeqNumber++, operation, "smdp.example.com", iccid));
+    }
+}
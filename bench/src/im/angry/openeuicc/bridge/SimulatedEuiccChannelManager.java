@@ -0,0 +1,104 @@
+package im.angry.openeuicc.bridge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import kotlin.coroutines.Continuation;
+import kotlin.jvm.functions.Function2;
+
+import im.angry.openeuicc.core.DefaultEuiccChannelManager;
+import im.angry.openeuicc.core.EuiccChannel;
+import im.angry.openeuicc.util.UiccCardInfoCompat;
+import im.angry.openeuicc.util.UiccPortInfoCompat;
+
+// Removable cards in slots 0..n-1, one port each, channels are cached per port like DefaultEuiccChannelManager does and only opening one pays for it
+final class SimulatedEuiccChannelManager extends DefaultEuiccChannelManager
+{
+    private final SimulatedLatency latency;
+    private final List<SimulatedEuicc> cards = new ArrayList<>();
+    private final Map<String, EuiccChannel> channelCache = new ConcurrentHashMap<>();
+
+    SimulatedEuiccChannelManager(int cardCount, int profileCount, SimulatedLatency latency, double smdpFailureRate)
+    {
+        this.latency = latency;
+
+        for (int slot = 0; slot < cardCount; slot++)
+            cards.add(new SimulatedEuicc(slot, 0, profileCount, latency, smdpFailureRate));
+    }
+
+    List<SimulatedEuicc> getCards()
+    {
+        return cards;
+    }
+
+    SimulatedEuicc getCard(int slot, int port)
+    {
+        return cards.stream()
+            .filter(card -> card.getSlot() == slot && card.getPort() == port)
+            .findFirst()
+            .orElse(null);
+    }
+
+    @Override
+    public <R> Object withEuiccChannel(int physicalSlotId, int portId, Function2<? super EuiccChannel, ? super Continuation<? super R>, ?> fn, Continuation<? super R> continuation)
+    {
+        var channel = findChannel(physicalSlotId, portId);
+
+        if (channel == null)
+            throw new IllegalStateException("No euicc channel for slot " + physicalSlotId + " port " + portId);
+
+        // the channel stays cached for the next caller
+        return fn.invoke(channel, continuation);
+    }
+
+    @Override
+    protected List<UiccCardInfoCompat> uiccCards()
+    {
+        return cards.stream()
+            .map(card -> new UiccCardInfoCompat(card.getSlot(), true, List.of(new UiccPortInfoCompat(card.getPort()))))
+            .toList();
+    }
+
+    // a closed channel is reopened on the next lookup
+    @Override
+    protected EuiccChannel findChannel(int physicalSlotId, int portId)
+    {
+        var card = getCard(physicalSlotId, portId);
+
+        if (card == null)
+            return null;
+
+        return channelCache.compute
+        (
+            physicalSlotId + ":" + portId,
+            (_, cached) -> cached != null && cached.getValid() ? cached : openChannel(card, physicalSlotId, portId)
+        );
+    }
+
+    private EuiccChannel openChannel(SimulatedEuicc card, int physicalSlotId, int portId)
+    {
+        latency.channel();
+
+        return new EuiccChannel()
+        {
+            private volatile boolean open = true;
+
+            @Override
+            public int getSlotId() { return physicalSlotId; }
+
+            @Override
+            public int getPortId() { return portId; }
+
+            @Override
+            public SimulatedEuicc getLpa() { return card; }
+
+            @Override
+            public boolean getValid() { return open; }
+
+            @Override
+            public void close() { open = false; }
+        };
+    }
+}
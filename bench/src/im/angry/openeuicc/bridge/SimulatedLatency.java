@@ -0,0 +1,36 @@
+package im.angry.openeuicc.bridge;
+
+import java.util.concurrent.locks.LockSupport;
+
+// What a simulated card costs: opening a channel, each APDU, each round trip to an SM-DP+
+record SimulatedLatency(long channelMicros, long apduMicros, long smdpMicros)
+{
+    static final SimulatedLatency NONE = new SimulatedLatency(0, 0, 0);
+
+    void channel()
+    {
+        pause(channelMicros);
+    }
+
+    void apdus(int count)
+    {
+        pause(apduMicros * count);
+    }
+
+    void smdp()
+    {
+        pause(smdpMicros);
+    }
+
+    private static void pause(long micros)
+    {
+        if (micros <= 0)
+            return;
+
+        long deadline = System.nanoTime() + micros * 1_000;
+
+        // parkNanos may wake early
+        for (long remaining = micros * 1_000; remaining > 0; remaining = deadline - System.nanoTime())
+            LockSupport.parkNanos(remaining);
+    }
+}
@@ -0,0 +1,11 @@
+package android.content;
+
+public abstract class BroadcastReceiver
+{
+    public abstract void onReceive(Context context, Intent intent);
+
+    public final boolean isInitialStickyBroadcast()
+    {
+        return false;
+    }
+}
@@ -0,0 +1,42 @@
+package android.content;
+
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+
+public abstract class ContentProvider
+{
+    private Context context;
+
+    // the framework attaches the context before onCreate
+    public void attachInfo(Context context)
+    {
+        this.context = context;
+    }
+
+    public final Context getContext()
+    {
+        return context;
+    }
+
+    public abstract boolean onCreate();
+
+    public void shutdown()
+    {
+    }
+
+    public abstract Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder);
+
+    public Bundle call(String method, String arg, Bundle extras)
+    {
+        return null;
+    }
+
+    public abstract String getType(Uri uri);
+
+    public abstract Uri insert(Uri uri, ContentValues values);
+
+    public abstract int delete(Uri uri, String selection, String[] selectionArgs);
+
+    public abstract int update(Uri uri, ContentValues values, String selection, String[] selectionArgs);
+}
@@ -0,0 +1,11 @@
+package android.content;
+
+import android.database.ContentObserver;
+import android.net.Uri;
+
+public abstract class ContentResolver
+{
+    public void notifyChange(Uri uri, ContentObserver observer)
+    {
+    }
+}
@@ -0,0 +1,18 @@
+package android.content;
+
+import java.io.File;
+
+public abstract class Context
+{
+    public static final int MODE_PRIVATE = 0;
+
+    public abstract Context getApplicationContext();
+
+    public abstract ContentResolver getContentResolver();
+
+    public abstract Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter);
+
+    public abstract SharedPreferences getSharedPreferences(String name, int mode);
+
+    public abstract File getFilesDir();
+}
@@ -0,0 +1,94 @@
+package android.database;
+
+public abstract class AbstractCursor implements Cursor
+{
+    protected int mPos = -1;
+
+    @Override
+    public abstract int getCount();
+
+    @Override
+    public abstract String[] getColumnNames();
+
+    @Override
+    public int getPosition()
+    {
+        return mPos;
+    }
+
+    @Override
+    public final boolean moveToPosition(int position)
+    {
+        int count = getCount();
+
+        if (position >= count)
+        {
+            mPos = count;
+            return false;
+        }
+
+        if (position < 0)
+        {
+            mPos = -1;
+            return false;
+        }
+
+        mPos = position;
+        return true;
+    }
+
+    @Override
+    public final boolean moveToFirst()
+    {
+        return moveToPosition(0);
+    }
+
+    @Override
+    public final boolean moveToNext()
+    {
+        return moveToPosition(mPos + 1);
+    }
+
+    @Override
+    public int getColumnCount()
+    {
+        return getColumnNames().length;
+    }
+
+    @Override
+    public int getColumnIndex(String columnName)
+    {
+        String[] columnNames = getColumnNames();
+
+        for (int columnIndex = 0; columnIndex < columnNames.length; columnIndex++)
+        {
+            if (columnNames[columnIndex].equalsIgnoreCase(columnName))
+                return columnIndex;
+        }
+
+        return -1;
+    }
+
+    @Override
+    public String getColumnName(int columnIndex)
+    {
+        return getColumnNames()[columnIndex];
+    }
+
+    @Override
+    public int getType(int columnIndex)
+    {
+        return FIELD_TYPE_STRING;
+    }
+
+    @Override
+    public byte[] getBlob(int columnIndex)
+    {
+        throw new UnsupportedOperationException("getBlob is not supported");
+    }
+
+    @Override
+    public void close()
+    {
+    }
+}
@@ -0,0 +1,51 @@
+package android.database;
+
+import java.io.Closeable;
+
+public interface Cursor extends Closeable
+{
+    int FIELD_TYPE_NULL = 0;
+    int FIELD_TYPE_INTEGER = 1;
+    int FIELD_TYPE_FLOAT = 2;
+    int FIELD_TYPE_STRING = 3;
+    int FIELD_TYPE_BLOB = 4;
+
+    int getCount();
+
+    int getPosition();
+
+    boolean moveToPosition(int position);
+
+    boolean moveToFirst();
+
+    boolean moveToNext();
+
+    String[] getColumnNames();
+
+    int getColumnCount();
+
+    int getColumnIndex(String columnName);
+
+    String getColumnName(int columnIndex);
+
+    int getType(int columnIndex);
+
+    String getString(int columnIndex);
+
+    short getShort(int columnIndex);
+
+    int getInt(int columnIndex);
+
+    long getLong(int columnIndex);
+
+    float getFloat(int columnIndex);
+
+    double getDouble(int columnIndex);
+
+    byte[] getBlob(int columnIndex);
+
+    boolean isNull(int columnIndex);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,168 @@
+package android.net;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Like the framework's string Uri, parts are scanned out of the string on every call
+public final class Uri
+{
+    private final String uriString;
+
+    private Uri(String uriString)
+    {
+        this.uriString = uriString;
+    }
+
+    public static Uri parse(String uriString)
+    {
+        return new Uri(uriString);
+    }
+
+    public static Uri withAppendedPath(Uri baseUri, String pathSegment)
+    {
+        var base = baseUri.uriString;
+
+        return new Uri(base.endsWith("/") ? base + pathSegment : base + "/" + pathSegment);
+    }
+
+    public String getScheme()
+    {
+        int colon = uriString.indexOf(':');
+
+        return colon < 0 ? null : uriString.substring(0, colon);
+    }
+
+    public String getAuthority()
+    {
+        int start = uriString.indexOf("//");
+
+        if (start < 0)
+            return null;
+
+        start += 2;
+        int end = start;
+
+        while (end < uriString.length() && "/?#".indexOf(uriString.charAt(end)) < 0)
+            end++;
+
+        return uriString.substring(start, end);
+    }
+
+    public List<String> getPathSegments()
+    {
+        var path = getEncodedPath();
+
+        if (path == null)
+            return Collections.emptyList();
+
+        var segments = new ArrayList<String>();
+
+        for (String segment : path.split("/"))
+        {
+            if (!segment.isEmpty())
+                segments.add(decode(segment));
+        }
+
+        return segments;
+    }
+
+    public String getLastPathSegment()
+    {
+        var segments = getPathSegments();
+
+        return segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    }
+
+    public Set<String> getQueryParameterNames()
+    {
+        var query = getEncodedQuery();
+
+        if (query == null)
+            return Collections.emptySet();
+
+        var names = new LinkedHashSet<String>();
+
+        for (String parameter : query.split("&"))
+        {
+            int equals = parameter.indexOf('=');
+            names.add(decode(equals < 0 ? parameter : parameter.substring(0, equals)));
+        }
+
+        return Collections.unmodifiableSet(names);
+    }
+
+    public String getQueryParameter(String key)
+    {
+        var query = getEncodedQuery();
+
+        if (query == null)
+            return null;
+
+        for (String parameter : query.split("&"))
+        {
+            int equals = parameter.indexOf('=');
+            var name = decode(equals < 0 ? parameter : parameter.substring(0, equals));
+
+            if (name.equals(key))
+                return equals < 0 ? "" : decode(parameter.substring(equals + 1));
+        }
+
+        return null;
+    }
+
+    @Override
+    public String toString()
+    {
+        return uriString;
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        return other instanceof Uri uri && uri.uriString.equals(uriString);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return uriString.hashCode();
+    }
+
+    private String getEncodedPath()
+    {
+        var authority = getAuthority();
+
+        if (authority == null)
+            return null;
+
+        int start = uriString.indexOf("//") + 2 + authority.length();
+        int end = start;
+
+        while (end < uriString.length() && "?#".indexOf(uriString.charAt(end)) < 0)
+            end++;
+
+        return uriString.substring(start, end);
+    }
+
+    private String getEncodedQuery()
+    {
+        int start = uriString.indexOf('?');
+
+        if (start < 0)
+            return null;
+
+        int end = uriString.indexOf('#', start);
+
+        return uriString.substring(start + 1, end < 0 ? uriString.length() : end);
+    }
+
+    private static String decode(String value)
+    {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,64 @@
+package android.os;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Untyped map like the platform's, only the accessors the provider and benchmarks use
+public final class Bundle implements Parcelable
+{
+    private final Map<String, Object> values;
+
+    public Bundle()
+    {
+        values = new LinkedHashMap<>();
+    }
+
+    public Bundle(int capacity)
+    {
+        values = new LinkedHashMap<>(Math.max(capacity, 1));
+    }
+
+    public int size() { return values.size(); }
+
+    public Set<String> keySet() { return values.keySet(); }
+
+    public boolean containsKey(String key) { return values.containsKey(key); }
+
+    @Deprecated
+    public Object get(String key) { return values.get(key); }
+
+    public void putBoolean(String key, boolean value) { values.put(key, value); }
+
+    public void putInt(String key, int value) { values.put(key, value); }
+
+    public void putLong(String key, long value) { values.put(key, value); }
+
+    public void putDouble(String key, double value) { values.put(key, value); }
+
+    public void putString(String key, String value) { values.put(key, value); }
+
+    public void putByteArray(String key, byte[] value) { values.put(key, value); }
+
+    public void putParcelableArray(String key, Parcelable[] value) { values.put(key, value); }
+
+    public boolean getBoolean(String key) { return values.get(key) instanceof Boolean value && value; }
+
+    public int getInt(String key) { return values.get(key) instanceof Integer value ? value : 0; }
+
+    public long getLong(String key) { return values.get(key) instanceof Long value ? value : 0; }
+
+    public double getDouble(String key) { return values.get(key) instanceof Double value ? value : 0; }
+
+    public String getString(String key) { return values.get(key) instanceof String value ? value : null; }
+
+    public byte[] getByteArray(String key) { return values.get(key) instanceof byte[] value ? value : null; }
+
+    public Parcelable[] getParcelableArray(String key) { return values.get(key) instanceof Parcelable[] value ? value : null; }
+
+    @Override
+    public String toString()
+    {
+        return "Bundle[" + values + "]";
+    }
+}
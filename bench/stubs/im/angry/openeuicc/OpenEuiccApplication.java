@@ -0,0 +1,10 @@
+package im.angry.openeuicc;
+
+import android.content.Context;
+
+import im.angry.openeuicc.di.AppContainer;
+
+public abstract class OpenEuiccApplication extends Context
+{
+    public abstract AppContainer getAppContainer();
+}
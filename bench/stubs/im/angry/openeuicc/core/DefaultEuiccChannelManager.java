@@ -0,0 +1,25 @@
+package im.angry.openeuicc.core;
+
+import java.util.List;
+
+import kotlin.coroutines.Continuation;
+
+import im.angry.openeuicc.util.UiccCardInfoCompat;
+
+// The private methods the provider reaches by reflection hand over to overridable hooks
+public abstract class DefaultEuiccChannelManager implements EuiccChannelManager
+{
+    protected abstract List<UiccCardInfoCompat> uiccCards();
+
+    protected abstract EuiccChannel findChannel(int physicalSlotId, int portId);
+
+    private List<UiccCardInfoCompat> getUiccCards()
+    {
+        return uiccCards();
+    }
+
+    private Object findEuiccChannelByPort(int physicalSlotId, int portId, Continuation<? super EuiccChannel> continuation)
+    {
+        return findChannel(physicalSlotId, portId);
+    }
+}
@@ -0,0 +1,16 @@
+package im.angry.openeuicc.core;
+
+import net.typeblog.lpac_jni.LocalProfileAssistant;
+
+public interface EuiccChannel
+{
+    int getSlotId();
+
+    int getPortId();
+
+    LocalProfileAssistant getLpa();
+
+    boolean getValid();
+
+    void close();
+}
@@ -0,0 +1,13 @@
+package im.angry.openeuicc.core;
+
+import kotlin.coroutines.Continuation;
+import kotlin.jvm.functions.Function2;
+
+public interface EuiccChannelManager
+{
+    // slot id of the USB reader
+    int USB_CHANNEL_ID = 99;
+
+    // suspend fun <R> withEuiccChannel(physicalSlotId: Int, portId: Int, fn: suspend (EuiccChannel) -> R): R
+    <R> Object withEuiccChannel(int physicalSlotId, int portId, Function2<? super EuiccChannel, ? super Continuation<? super R>, ?> fn, Continuation<? super R> continuation);
+}
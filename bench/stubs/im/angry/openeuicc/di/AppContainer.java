@@ -0,0 +1,11 @@
+package im.angry.openeuicc.di;
+
+import im.angry.openeuicc.core.EuiccChannelManager;
+import im.angry.openeuicc.util.PreferenceRepository;
+
+public interface AppContainer
+{
+    EuiccChannelManager getEuiccChannelManager();
+
+    PreferenceRepository getPreferenceRepository();
+}
@@ -0,0 +1,27 @@
+package im.angry.openeuicc.di;
+
+import im.angry.openeuicc.core.EuiccChannelManager;
+import im.angry.openeuicc.util.PreferenceRepository;
+
+public class UnprivilegedAppContainer implements AppContainer
+{
+    private final EuiccChannelManager euiccChannelManager;
+    private final PreferenceRepository preferenceRepository = new PreferenceRepository();
+
+    public UnprivilegedAppContainer(EuiccChannelManager euiccChannelManager)
+    {
+        this.euiccChannelManager = euiccChannelManager;
+    }
+
+    @Override
+    public EuiccChannelManager getEuiccChannelManager()
+    {
+        return euiccChannelManager;
+    }
+
+    @Override
+    public PreferenceRepository getPreferenceRepository()
+    {
+        return preferenceRepository;
+    }
+}
@@ -0,0 +1,51 @@
+package im.angry.openeuicc.util;
+
+// LPA:1$<address>$<matchingId>[$<oid>[$1]]
+public final class ActivationCode
+{
+    public static final Companion Companion = new Companion();
+
+    private final String address;
+    private final String matchingId;
+    private final boolean confirmationCodeRequired;
+
+    private ActivationCode(String address, String matchingId, boolean confirmationCodeRequired)
+    {
+        this.address = address;
+        this.matchingId = matchingId;
+        this.confirmationCodeRequired = confirmationCodeRequired;
+    }
+
+    public String getAddress()
+    {
+        return address;
+    }
+
+    public String getMatchingId()
+    {
+        return matchingId;
+    }
+
+    public boolean getConfirmationCodeRequired()
+    {
+        return confirmationCodeRequired;
+    }
+
+    public static final class Companion
+    {
+        public ActivationCode fromString(String token)
+        {
+            var parts = token.split("\\$", -1);
+
+            if (parts.length < 2 || !parts[0].equals("LPA:1"))
+                throw new IllegalArgumentException("Invalid activation code format");
+
+            return new ActivationCode
+            (
+                parts[1],
+                parts.length > 2 && !parts[2].isEmpty() ? parts[2] : null,
+                parts.length > 4 && parts[4].equals("1")
+            );
+        }
+    }
+}
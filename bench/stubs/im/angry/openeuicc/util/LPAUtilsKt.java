@@ -0,0 +1,28 @@
+package im.angry.openeuicc.util;
+
+import java.util.List;
+
+import net.typeblog.lpac_jni.LocalProfileInfo;
+
+public final class LPAUtilsKt
+{
+    public static boolean isEnabled(LocalProfileInfo profile)
+    {
+        return profile.getState() == LocalProfileInfo.State.Enabled;
+    }
+
+    public static LocalProfileInfo getEnabled(List<LocalProfileInfo> profiles)
+    {
+        return profiles.stream()
+            .filter(LPAUtilsKt::isEnabled)
+            .findFirst()
+            .orElse(null);
+    }
+
+    public static List<LocalProfileInfo> getOperational(List<LocalProfileInfo> profiles)
+    {
+        return profiles.stream()
+            .filter(p -> p.getProfileClass() == LocalProfileInfo.Clazz.Operational)
+            .toList();
+    }
+}
@@ -0,0 +1,31 @@
+package im.angry.openeuicc.util;
+
+import kotlin.Unit;
+import kotlin.coroutines.Continuation;
+import kotlinx.coroutines.flow.FlowCollector;
+import kotlinx.coroutines.flow.MutableStateFlow;
+import kotlinx.coroutines.flow.StateFlowKt;
+import kotlinx.coroutines.flow.Flow;
+
+// In memory instead of DataStore
+public class PreferenceFlowWrapper<T> implements Flow<T>
+{
+    private final MutableStateFlow<T> state;
+
+    public PreferenceFlowWrapper(T defaultValue)
+    {
+        state = StateFlowKt.MutableStateFlow(defaultValue);
+    }
+
+    @Override
+    public Object collect(FlowCollector<? super T> collector, Continuation<? super Unit> continuation)
+    {
+        return state.collect(collector, continuation);
+    }
+
+    public Object updatePreference(T value, Continuation<? super Unit> continuation)
+    {
+        state.setValue(value);
+        return Unit.INSTANCE;
+    }
+}
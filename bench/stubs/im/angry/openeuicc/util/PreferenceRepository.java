@@ -0,0 +1,29 @@
+package im.angry.openeuicc.util;
+
+public class PreferenceRepository
+{
+    private final PreferenceFlowWrapper<Boolean> verboseLoggingFlow = new PreferenceFlowWrapper<>(false);
+    private final PreferenceFlowWrapper<Boolean> forceUseTMAPIFlow = new PreferenceFlowWrapper<>(false);
+    private final PreferenceFlowWrapper<Boolean> disableSafeguardFlow = new PreferenceFlowWrapper<>(false);
+    private final PreferenceFlowWrapper<Boolean> unfilteredProfileListFlow = new PreferenceFlowWrapper<>(false);
+    private final PreferenceFlowWrapper<Boolean> ignoreTLSCertificateFlow = new PreferenceFlowWrapper<>(false);
+    private final PreferenceFlowWrapper<Boolean> notificationDownloadFlow = new PreferenceFlowWrapper<>(true);
+    private final PreferenceFlowWrapper<Boolean> notificationDeleteFlow = new PreferenceFlowWrapper<>(true);
+    private final PreferenceFlowWrapper<Boolean> notificationSwitchFlow = new PreferenceFlowWrapper<>(false);
+
+    public PreferenceFlowWrapper<Boolean> getVerboseLoggingFlow() { return verboseLoggingFlow; }
+
+    public PreferenceFlowWrapper<Boolean> getForceUseTMAPIFlow() { return forceUseTMAPIFlow; }
+
+    public PreferenceFlowWrapper<Boolean> getDisableSafeguardFlow() { return disableSafeguardFlow; }
+
+    public PreferenceFlowWrapper<Boolean> getUnfilteredProfileListFlow() { return unfilteredProfileListFlow; }
+
+    public PreferenceFlowWrapper<Boolean> getIgnoreTLSCertificateFlow() { return ignoreTLSCertificateFlow; }
+
+    public PreferenceFlowWrapper<Boolean> getNotificationDownloadFlow() { return notificationDownloadFlow; }
+
+    public PreferenceFlowWrapper<Boolean> getNotificationDeleteFlow() { return notificationDeleteFlow; }
+
+    public PreferenceFlowWrapper<Boolean> getNotificationSwitchFlow() { return notificationSwitchFlow; }
+}
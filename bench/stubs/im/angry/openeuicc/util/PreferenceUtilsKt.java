@@ -0,0 +1,13 @@
+package im.angry.openeuicc.util;
+
+import android.content.Context;
+
+import im.angry.openeuicc.OpenEuiccApplication;
+
+public final class PreferenceUtilsKt
+{
+    public static PreferenceRepository getPreferenceRepository(Context context)
+    {
+        return ((OpenEuiccApplication) context.getApplicationContext()).getAppContainer().getPreferenceRepository();
+    }
+}
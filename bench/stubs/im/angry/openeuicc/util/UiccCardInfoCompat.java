@@ -0,0 +1,32 @@
+package im.angry.openeuicc.util;
+
+import java.util.Collection;
+
+public class UiccCardInfoCompat
+{
+    private final int physicalSlotIndex;
+    private final boolean removable;
+    private final Collection<UiccPortInfoCompat> ports;
+
+    public UiccCardInfoCompat(int physicalSlotIndex, boolean removable, Collection<UiccPortInfoCompat> ports)
+    {
+        this.physicalSlotIndex = physicalSlotIndex;
+        this.removable = removable;
+        this.ports = ports;
+    }
+
+    public int getPhysicalSlotIndex()
+    {
+        return physicalSlotIndex;
+    }
+
+    public boolean isRemovable()
+    {
+        return removable;
+    }
+
+    public Collection<UiccPortInfoCompat> getPorts()
+    {
+        return ports;
+    }
+}
@@ -0,0 +1,16 @@
+package im.angry.openeuicc.util;
+
+public class UiccPortInfoCompat
+{
+    private final int portIndex;
+
+    public UiccPortInfoCompat(int portIndex)
+    {
+        this.portIndex = portIndex;
+    }
+
+    public int getPortIndex()
+    {
+        return portIndex;
+    }
+}
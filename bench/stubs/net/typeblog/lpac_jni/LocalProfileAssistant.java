@@ -0,0 +1,24 @@
+package net.typeblog.lpac_jni;
+
+import java.util.List;
+
+public interface LocalProfileAssistant
+{
+    String getEID();
+
+    List<LocalProfileInfo> getProfiles();
+
+    List<LocalProfileNotification> getNotifications();
+
+    boolean enableProfile(String iccid, boolean refresh);
+
+    boolean deleteProfile(String iccid);
+
+    void downloadProfile(String smdp, String matchingId, String imei, String confirmationCode, ProfileDownloadCallback callback);
+
+    void setNickname(String iccid, String nickname);
+
+    void handleNotification(LocalProfileNotification notification);
+
+    boolean deleteNotification(long seqNumber);
+}
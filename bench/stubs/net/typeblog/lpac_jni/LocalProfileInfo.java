@@ -0,0 +1,72 @@
+package net.typeblog.lpac_jni;
+
+import java.util.Objects;
+
+public final class LocalProfileInfo
+{
+    public enum State
+    {
+        Enabled,
+        Disabled
+    }
+
+    public enum Clazz
+    {
+        Testing,
+        Provisioning,
+        Operational
+    }
+
+    private final String iccid;
+    private final State state;
+    private final String name;
+    private final String nickName;
+    private final String providerName;
+    private final String isdpAID;
+    private final Clazz profileClass;
+
+    public LocalProfileInfo(String iccid, State state, String name, String nickName, String providerName, String isdpAID, Clazz profileClass)
+    {
+        this.iccid = iccid;
+        this.state = state;
+        this.name = name;
+        this.nickName = nickName;
+        this.providerName = providerName;
+        this.isdpAID = isdpAID;
+        this.profileClass = profileClass;
+    }
+
+    public String getIccid() { return iccid; }
+
+    public State getState() { return state; }
+
+    public String getName() { return name; }
+
+    public String getNickName() { return nickName; }
+
+    public String getProviderName() { return providerName; }
+
+    public String getIsdpAID() { return isdpAID; }
+
+    public Clazz getProfileClass() { return profileClass; }
+
+    // a Kotlin data class on the device
+    @Override
+    public boolean equals(Object other)
+    {
+        return other instanceof LocalProfileInfo profile
+            && Objects.equals(iccid, profile.iccid)
+            && state == profile.state
+            && Objects.equals(name, profile.name)
+            && Objects.equals(nickName, profile.nickName)
+            && Objects.equals(providerName, profile.providerName)
+            && Objects.equals(isdpAID, profile.isdpAID)
+            && profileClass == profile.profileClass;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(iccid, state, name, nickName, providerName, isdpAID, profileClass);
+    }
+}
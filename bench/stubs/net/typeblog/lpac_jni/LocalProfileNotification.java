@@ -0,0 +1,33 @@
+package net.typeblog.lpac_jni;
+
+public final class LocalProfileNotification
+{
+    public enum Operation
+    {
+        Install,
+        Enable,
+        Disable,
+        Delete
+    }
+
+    private final long seqNumber;
+    private final Operation profileManagementOperation;
+    private final String notificationAddress;
+    private final String iccid;
+
+    public LocalProfileNotification(long seqNumber, Operation profileManagementOperation, String notificationAddress, String iccid)
+    {
+        this.seqNumber = seqNumber;
+        this.profileManagementOperation = profileManagementOperation;
+        this.notificationAddress = notificationAddress;
+        this.iccid = iccid;
+    }
+
+    public long getSeqNumber() { return seqNumber; }
+
+    public Operation getProfileManagementOperation() { return profileManagementOperation; }
+
+    public String getNotificationAddress() { return notificationAddress; }
+
+    public String getIccid() { return iccid; }
+}
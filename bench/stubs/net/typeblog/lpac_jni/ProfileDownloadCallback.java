@@ -0,0 +1,27 @@
+package net.typeblog.lpac_jni;
+
+public interface ProfileDownloadCallback
+{
+    enum DownloadState
+    {
+        Preparing(0),
+        Connecting(20),
+        Authenticating(40),
+        Downloading(60),
+        Finalizing(80);
+
+        private final int progress;
+
+        DownloadState(int progress)
+        {
+            this.progress = progress;
+        }
+
+        public int getProgress()
+        {
+            return progress;
+        }
+    }
+
+    void onStateUpdate(DownloadState state);
+}
@@ -0,0 +1,195 @@
+package im.angry.openeuicc.bridge;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.nio.charset.StandardCharsets;
+import java.net.URL;
+import java.net.HttpURLConnection;
+
+import com.google.gson.Gson;
+
+// Delivers callback POSTs on a small fixed pool, in order per key (one key per download)
+final class CallbackDispatcher
+{
+    private static final int THREADS = 2;
+    private static final int MAX_PENDING = 1024;
+    // past this many queued events for one key, queued supersedable events make way for the newest one
+    private static final int COALESCE_THRESHOLD = 4;
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long RETRY_BASE_DELAY_MS = 500;
+    private static final int CONNECT_TIMEOUT_MS = 5_000;
+    private static final int READ_TIMEOUT_MS = 10_000;
+
+    private static final class Event
+    {
+        final URL url;
+        final Map<String, Object> data;
+        final boolean supersedable;
+        int attempts;
+
+        Event(URL url, Map<String, Object> data, boolean supersedable)
+        {
+            this.url = url;
+            this.data = data;
+            this.supersedable = supersedable;
+        }
+    }
+
+    private final Gson gson;
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(THREADS);
+
+    // guarded by this, a key is present while its head event is being delivered or awaiting retry
+    private final Map<String, ArrayDeque<Event>> queues = new HashMap<>();
+    private int pending;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    CallbackDispatcher(Gson gson)
+    {
+        this.gson = gson;
+    }
+
+    void post(String key, URL url, Map<String, Object> data, boolean supersedable)
+    {
+        synchronized (this)
+        {
+            var queue = queues.get(key);
+
+            if (queue != null && supersedable && queue.size() >= COALESCE_THRESHOLD)
+            {
+                // the head is in flight, everything behind it is fair game
+                var iterator = queue.iterator();
+                iterator.next();
+
+                while (iterator.hasNext())
+                {
+                    if (iterator.next().supersedable)
+                    {
+                        iterator.remove();
+                        pending--;
+                        coalesced.incrementAndGet();
+                    }
+                }
+            }
+
+            if (pending >= MAX_PENDING)
+            {
+                dropped.incrementAndGet();
+                return;
+            }
+
+            pending++;
+            enqueued.incrementAndGet();
+
+            if (queue != null)
+            {
+                queue.add(new Event(url, data, supersedable));
+                return;
+            }
+
+            queue = new ArrayDeque<>();
+            queue.add(new Event(url, data, supersedable));
+            queues.put(key, queue);
+        }
+
+        executor.execute(() -> drain(key));
+    }
+
+    Map<String, Long> getStats()
+    {
+        var stats = new LinkedHashMap<String, Long>();
+
+        synchronized (this)
+        {
+            stats.put("pending", (long) pending);
+        }
+
+        stats.put("enqueued", enqueued.get());
+        stats.put("delivered", delivered.get());
+        stats.put("retried", retried.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("dropped", dropped.get());
+        stats.put("failed", failed.get());
+
+        return stats;
+    }
+
+    void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    private void drain(String key)
+    {
+        Event event;
+
+        synchronized (this)
+        {
+            event = queues.get(key).peek();
+        }
+
+        try
+        {
+            send(event.url, event.data);
+            delivered.incrementAndGet();
+        }
+        catch (Exception ex)
+        {
+            if (++event.attempts < MAX_ATTEMPTS)
+            {
+                retried.incrementAndGet();
+                executor.schedule(() -> drain(key), RETRY_BASE_DELAY_MS << (event.attempts - 1), TimeUnit.MILLISECONDS);
+                return;
+            }
+
+            failed.incrementAndGet();
+        }
+
+        synchronized (this)
+        {
+            var queue = queues.get(key);
+
+            queue.poll();
+            pending--;
+
+            if (queue.isEmpty())
+            {
+                queues.remove(key);
+                return;
+            }
+        }
+
+        executor.execute(() -> drain(key));
+    }
+
+    private void send(URL url, Map<String, Object> data) throws Exception
+    {
+        String json = gson.toJson(data);
+
+        var httpConnection = (HttpURLConnection) url.openConnection();
+
+        httpConnection.setRequestMethod("POST");
+        httpConnection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+        httpConnection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        httpConnection.setReadTimeout(READ_TIMEOUT_MS);
+        httpConnection.setDoOutput(true);
+
+        try (var outputStream = httpConnection.getOutputStream())
+        {
+            outputStream.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+
+        httpConnection.getInputStream().close();
+    }
+}
@@ -0,0 +1,127 @@
+package im.angry.openeuicc.bridge;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// one holder at a time like a Mutex, but handed over by priority instead of in arrival order
+final class CardLock
+{
+    // served in this order
+    enum Priority
+    {
+        READ,
+        SHORT_WRITE,
+        LONG_WRITE
+    }
+
+    // a waiter passed over this many times goes next whatever its priority, so downloads still get their turn
+    private static final int MAX_BYPASSES = 8;
+
+    static final class Waiter
+    {
+        private final Priority priority;
+        private int bypassed;
+        private boolean granted;
+        private boolean abandoned;
+
+        private Waiter(Priority priority)
+        {
+            this.priority = priority;
+        }
+    }
+
+    // arrival order
+    private final List<Waiter> waiters = new ArrayList<>();
+    private Priority holder;
+
+    synchronized boolean isWriteHeld()
+    {
+        return holder != null && holder != Priority.READ;
+    }
+
+    synchronized Waiter enqueue(Priority priority)
+    {
+        var waiter = new Waiter(priority);
+
+        if (holder == null && waiters.isEmpty())
+        {
+            waiter.granted = true;
+            holder = priority;
+        }
+        else
+        {
+            waiters.add(waiter);
+        }
+
+        return waiter;
+    }
+
+    // true once the lock is handed over, false for a waiter that was abandoned first
+    synchronized boolean await(Waiter waiter) throws InterruptedException
+    {
+        try
+        {
+            while (!waiter.granted && !waiter.abandoned)
+                wait();
+        }
+        catch (InterruptedException ex)
+        {
+            if (!waiter.granted)
+            {
+                abandon(waiter);
+                throw ex;
+            }
+
+            // handed over while interrupted, the caller holds the lock and must unlock
+            Thread.currentThread().interrupt();
+        }
+
+        return waiter.granted;
+    }
+
+    // no-op once the lock was handed over
+    synchronized void abandon(Waiter waiter)
+    {
+        if (waiter.granted || waiter.abandoned)
+            return;
+
+        waiter.abandoned = true;
+        waiters.remove(waiter);
+
+        notifyAll();
+    }
+
+    synchronized void unlock()
+    {
+        holder = null;
+
+        if (waiters.isEmpty())
+            return;
+
+        int next = 0;
+
+        for (int index = 0; index < waiters.size(); index++)
+        {
+            var waiter = waiters.get(index);
+
+            if (waiter.bypassed >= MAX_BYPASSES)
+            {
+                next = index;
+                break;
+            }
+
+            if (waiter.priority.compareTo(waiters.get(next).priority) < 0)
+                next = index;
+        }
+
+        // everyone that arrived earlier was passed over once more
+        for (int index = 0; index < next; index++)
+            waiters.get(index).bypassed++;
+
+        var waiter = waiters.remove(next);
+        waiter.granted = true;
+        holder = waiter.priority;
+
+        notifyAll();
+    }
+}
@@ -0,0 +1,255 @@
+package im.angry.openeuicc.bridge;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import net.typeblog.lpac_jni.LocalProfileInfo;
+
+// Card topology and per-EID profile lists on disk, so a restarted process can answer before reading the cards again
+final class CardStore
+{
+    // files in any other format are ignored
+    private static final int FORMAT = 1;
+    // swapped-out cards are kept too, in case they come back
+    private static final int MAX_EIDS = 16;
+    // changes within this window go out in one write
+    private static final long WRITE_DELAY_MS = 1_000;
+
+    record Card(int slot, int port, String eid, boolean removable) { }
+
+    private final File file;
+    private final ScheduledExecutorService executor;
+
+    // all guarded by this, loaded on first access
+    private boolean loaded;
+    private List<Card> cards;
+    // least recently stored first
+    private final Map<String, List<LocalProfileInfo>> profiles = new LinkedHashMap<>();
+    private boolean writeScheduled;
+
+    CardStore(File file, ScheduledExecutorService executor)
+    {
+        this.file = file;
+        this.executor = executor;
+    }
+
+    // null when none were stored
+    synchronized List<Card> getCards()
+    {
+        load();
+
+        return cards;
+    }
+
+    synchronized List<LocalProfileInfo> getProfiles(String eid)
+    {
+        load();
+
+        return profiles.get(eid);
+    }
+
+    // null forgets them
+    synchronized void putCards(List<Card> cards)
+    {
+        load();
+
+        if (Objects.equals(this.cards, cards))
+            return;
+
+        this.cards = cards;
+        scheduleWrite();
+    }
+
+    synchronized void putProfiles(String eid, List<LocalProfileInfo> profiles)
+    {
+        load();
+
+        var previous = this.profiles.remove(eid);
+        this.profiles.put(eid, List.copyOf(profiles));
+
+        while (this.profiles.size() > MAX_EIDS)
+            this.profiles.remove(this.profiles.keySet().iterator().next());
+
+        if (!profiles.equals(previous))
+            scheduleWrite();
+    }
+
+    synchronized void removeProfiles(String eid)
+    {
+        load();
+
+        if (profiles.remove(eid) != null)
+            scheduleWrite();
+    }
+
+    // writes what's still waiting, for host runs that end the process
+    synchronized void flush()
+    {
+        if (writeScheduled)
+            write();
+    }
+
+    private void scheduleWrite()
+    {
+        if (writeScheduled)
+            return;
+
+        writeScheduled = true;
+        executor.schedule(this::write, WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // a missing or unreadable file is an empty store
+    private void load()
+    {
+        if (loaded)
+            return;
+
+        loaded = true;
+
+        if (!file.exists())
+            return;
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))
+        {
+            var json = JsonParser.parseReader(reader).getAsJsonObject();
+
+            if (json.get("format").getAsInt() != FORMAT)
+                return;
+
+            var storedCards = new ArrayList<Card>();
+
+            for (JsonElement element : json.getAsJsonArray("cards"))
+            {
+                var card = element.getAsJsonObject();
+
+                storedCards.add(new Card
+                (
+                    card.get("slot").getAsInt(),
+                    card.get("port").getAsInt(),
+                    getString(card, "eid"),
+                    card.get("removable").getAsBoolean()
+                ));
+            }
+
+            var storedProfiles = new LinkedHashMap<String, List<LocalProfileInfo>>();
+
+            for (var entry : json.getAsJsonObject("profiles").entrySet())
+            {
+                var profileList = new ArrayList<LocalProfileInfo>();
+
+                for (JsonElement element : entry.getValue().getAsJsonArray())
+                {
+                    var profile = element.getAsJsonObject();
+                    var profileClass = getString(profile, "profileClass");
+
+                    profileList.add(new LocalProfileInfo
+                    (
+                        getString(profile, "iccid"),
+                        LocalProfileInfo.State.valueOf(getString(profile, "state")),
+                        getString(profile, "name"),
+                        getString(profile, "nickName"),
+                        getString(profile, "providerName"),
+                        getString(profile, "isdpAID"),
+                        profileClass == null ? null : LocalProfileInfo.Clazz.valueOf(profileClass)
+                    ));
+                }
+
+                storedProfiles.put(entry.getKey(), List.copyOf(profileList));
+            }
+
+            cards = json.get("cardsStored").getAsBoolean() ? List.copyOf(storedCards) : null;
+            profiles.putAll(storedProfiles);
+        }
+        catch (Exception ex)
+        {
+            // written by a broken build or cut short, rebuilt from the cards
+        }
+    }
+
+    // to a temporary file first, so a process killed mid-write leaves the previous file
+    private synchronized void write()
+    {
+        writeScheduled = false;
+
+        var json = new JsonObject();
+        json.addProperty("format", FORMAT);
+        json.addProperty("cardsStored", cards != null);
+
+        var cardsJson = new JsonArray();
+
+        for (Card card : cards == null ? List.<Card>of() : cards)
+        {
+            var cardJson = new JsonObject();
+            cardJson.addProperty("slot", card.slot());
+            cardJson.addProperty("port", card.port());
+            cardJson.addProperty("eid", card.eid());
+            cardJson.addProperty("removable", card.removable());
+            cardsJson.add(cardJson);
+        }
+
+        json.add("cards", cardsJson);
+
+        var profilesJson = new JsonObject();
+
+        for (var entry : profiles.entrySet())
+        {
+            var profileList = new JsonArray();
+
+            for (LocalProfileInfo profile : entry.getValue())
+            {
+                var profileJson = new JsonObject();
+                profileJson.addProperty("iccid", profile.getIccid());
+                profileJson.addProperty("state", profile.getState().name());
+                profileJson.addProperty("name", profile.getName());
+                profileJson.addProperty("nickName", profile.getNickName());
+                profileJson.addProperty("providerName", profile.getProviderName());
+                profileJson.addProperty("isdpAID", profile.getIsdpAID());
+                profileJson.addProperty("profileClass", profile.getProfileClass() == null ? null : profile.getProfileClass().name());
+                profileList.add(profileJson);
+            }
+
+            profilesJson.add(entry.getKey(), profileList);
+        }
+
+        json.add("profiles", profilesJson);
+
+        var tempFile = new File(file.getPath() + ".tmp");
+
+        try (var out = new FileOutputStream(tempFile))
+        {
+            out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        catch (IOException ex)
+        {
+            // only a cache, the next change tries again
+            return;
+        }
+
+        tempFile.renameTo(file);
+    }
+
+    private static String getString(JsonObject json, String name)
+    {
+        var value = json.get(name);
+
+        return value == null || value.isJsonNull() ? null : value.getAsString();
+    }
+}
@@ -0,0 +1,124 @@
+package im.angry.openeuicc.bridge;
+
+import java.util.UUID;
+import java.time.Instant;
+
+import net.typeblog.lpac_jni.ProfileDownloadCallback;
+
+final class DownloadJob
+{
+    enum State
+    {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED;
+
+        @Override
+        public String toString()
+        {
+            return name().toLowerCase();
+        }
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final int slot;
+    private final int port;
+    private final long createdAt = Instant.now().getEpochSecond();
+
+    private volatile State state = State.QUEUED;
+    private volatile ProfileDownloadCallback.DownloadState downloadState;
+    private volatile String iccid;
+    private volatile String error;
+    private volatile long updatedAt = createdAt;
+
+    DownloadJob(int slot, int port)
+    {
+        this.slot = slot;
+        this.port = port;
+    }
+
+    String getId() { return id; }
+
+    int getSlot() { return slot; }
+
+    int getPort() { return port; }
+
+    long getCreatedAt() { return createdAt; }
+
+    long getUpdatedAt() { return updatedAt; }
+
+    State getState() { return state; }
+
+    ProfileDownloadCallback.DownloadState getDownloadState() { return downloadState; }
+
+    // 100 once completed, DownloadState tops out at Finalizing
+    int getProgress()
+    {
+        if (state == State.COMPLETED)
+            return 100;
+
+        var downloadState = this.downloadState;
+
+        return downloadState == null ? 0 : downloadState.getProgress();
+    }
+
+    String getIccid() { return iccid; }
+
+    String getError() { return error; }
+
+    boolean isFinished()
+    {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+
+    // false if it was cancelled while queued
+    synchronized boolean running()
+    {
+        if (state != State.QUEUED)
+            return false;
+
+        state = State.RUNNING;
+        touch();
+
+        return true;
+    }
+
+    // only while queued, a job that has started is cancelled through its request
+    synchronized boolean cancelQueued()
+    {
+        if (state != State.QUEUED)
+            return false;
+
+        error = "cancelled";
+        state = State.FAILED;
+        touch();
+
+        return true;
+    }
+
+    void update(ProfileDownloadCallback.DownloadState downloadState)
+    {
+        this.downloadState = downloadState;
+        touch();
+    }
+
+    void completed(String iccid)
+    {
+        this.iccid = iccid;
+        state = State.COMPLETED;
+        touch();
+    }
+
+    void failed(String error)
+    {
+        this.error = error;
+        state = State.FAILED;
+        touch();
+    }
+
+    private void touch()
+    {
+        updatedAt = Instant.now().getEpochSecond();
+    }
+}
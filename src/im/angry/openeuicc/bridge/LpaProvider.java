@@ -5,12 +5,36 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Set;
 import java.util.LinkedHashSet;
+import java.util.TreeMap;
 import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Base64;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Stream;
 import java.util.stream.Collectors;
 import java.time.Instant;
@@ -18,25 +42,39 @@ import java.nio.charset.*;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLDecoder;
-import java.net.HttpURLConnection;
+import java.lang.reflect.Method;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 
-import kotlin.jvm.functions.Function0;
 import kotlin.jvm.functions.Function2;
 import kotlin.coroutines.Continuation;
 import kotlin.coroutines.EmptyCoroutineContext;
+import kotlin.Unit;
 import kotlinx.coroutines.BuildersKt;
+import kotlinx.coroutines.CoroutineScopeKt;
+import kotlinx.coroutines.Dispatchers;
+import kotlinx.coroutines.JobKt;
 import kotlinx.coroutines.flow.FlowKt;
 import kotlinx.coroutines.sync.Mutex;
 import kotlinx.coroutines.sync.MutexKt;
 
+import android.content.BroadcastReceiver;
 import android.content.ContentProvider;
 import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
 import android.database.Cursor;
-import android.database.MatrixCursor;
 import android.net.Uri;
+import android.os.Bundle;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
 
 import im.angry.openeuicc.OpenEuiccApplication;
 import im.angry.openeuicc.di.AppContainer;
@@ -50,6 +88,7 @@ import im.angry.openeuicc.util.LPAUtilsKt;
 import im.angry.openeuicc.util.ActivationCode;
 import im.angry.openeuicc.util.PreferenceUtilsKt;
 import im.angry.openeuicc.util.PreferenceFlowWrapper;
+import net.typeblog.lpac_jni.LocalProfileAssistant;
 import net.typeblog.lpac_jni.LocalProfileInfo;
 import net.typeblog.lpac_jni.LocalProfileNotification;
 import net.typeblog.lpac_jni.ProfileDownloadCallback;
@@ -57,33 +96,191 @@ import net.typeblog.lpac_jni.ProfileDownloadCallback;
 public class LpaProvider extends ContentProvider
 {
     private AppContainer appContainer;
-    private Mutex mutex;
+    private Method getUiccCardsMethod;
+    private Method findEuiccChannelByPortMethod;
+    private final Map<String, CardLock> cardLocks = new ConcurrentHashMap<>();
+    private Mutex preferenceLock;
+    private final Map<String, Boolean> preferenceSnapshot = new ConcurrentHashMap<>();
+    private Mutex topologyLock;
+    private volatile List<CardInfo> cardTopology;
+    // cardTopology came from the saved file and hasn't been scanned since
+    private volatile boolean cardTopologyRestored;
+    private final Map<String, CachedProfiles> profileCache = new ConcurrentHashMap<>();
+    private CardStore cardStore;
+    private volatile boolean cardStoreRestored;
+    // what an earlier process stored, each used at most once and dropped when the cards change
+    private final AtomicReference<List<CardInfo>> restoredTopology = new AtomicReference<>();
+    private final Map<String, CachedProfiles> restoredProfiles = new ConcurrentHashMap<>();
+    private final LongAdder restoredReads = new LongAdder();
+    // versions from an earlier process never match
+    private final String versionNonce = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong versionGeneration = new AtomicLong();
+    private final Map<String, ProfilesVersion> profilesVersions = new ConcurrentHashMap<>();
+    // last list read from each card with its generation, kept across mutations for reads that can't wait
+    private final Map<String, ProfilesVersion> profileSnapshots = new ConcurrentHashMap<>();
+    private final LongAdder staleReads = new LongAdder();
+    private List<CardInfo> versionedTopology;
+    private volatile long topologyGeneration;
+    private volatile long preferencesGeneration;
+    private final Map<String, CompletableFuture<ResultCursor>> inFlightReads = new ConcurrentHashMap<>();
+    private final ThreadLocal<ChannelSession> channelSession = new ThreadLocal<>();
+    private final ThreadLocal<RequestContext> requestContext = new ThreadLocal<>();
+    private final Map<String, ChannelStats> channelStats = new ConcurrentHashMap<>();
+    private final Map<String, List<PendingNotification>> pendingNotifications = new HashMap<>();
+    private ScheduledExecutorService notificationExecutor;
+    private final Map<String, DownloadJob> downloadJobs = new ConcurrentHashMap<>();
+    private ExecutorService downloadExecutor;
+    // runs requests with a deadline so the binder thread can give up on them
+    private ExecutorService requestExecutor;
+    private final Map<String, Long> endpointTimeouts = new ConcurrentHashMap<>(DEFAULT_TIMEOUTS);
+    private final Map<String, TrackedDownload> downloadsInFlight = new ConcurrentHashMap<>();
+    // all provisioning state is guarded by provisioningTasks
+    private final Map<String, ProvisioningTask> provisioningTasks = new LinkedHashMap<>();
+    private final Set<String> provisioningCards = new HashSet<>();
+    private final Set<String> provisioningDownloads = new HashSet<>();
+    private final Map<String, Integer> smdpDownloads = new HashMap<>();
+    private final AtomicLong provisioningSequence = new AtomicLong();
     private Gson gson;
+    private CallbackDispatcher callbackDispatcher;
+    private final Metrics metrics = new Metrics();
+    private final ArrayDeque<Trace> traces = new ArrayDeque<>();
+    private volatile WarmUpStatus warmUpStatus = new WarmUpStatus("off", 0, 0, 0, null);
 
     @Override
     public boolean onCreate()
     {
         appContainer = ((OpenEuiccApplication) getContext().getApplicationContext()).getAppContainer();
 
-        mutex = MutexKt.Mutex(false);
+        try
+        {
+            getUiccCardsMethod = DefaultEuiccChannelManager.class.getDeclaredMethod("getUiccCards");
+            getUiccCardsMethod.setAccessible(true);
+
+            findEuiccChannelByPortMethod = DefaultEuiccChannelManager.class.getDeclaredMethod("findEuiccChannelByPort", int.class, int.class, Continuation.class);
+            findEuiccChannelByPortMethod.setAccessible(true);
+        }
+        catch (Exception ex)
+        {
+            // cards reports unsupported_channel_manager
+        }
+
+        var topologyFilter = new IntentFilter();
+        topologyFilter.addAction("android.intent.action.SIM_STATE_CHANGED");
+        topologyFilter.addAction("android.telephony.action.SIM_CARD_STATE_CHANGED");
+        topologyFilter.addAction("android.telephony.action.SIM_SLOT_STATUS_CHANGED");
+        topologyFilter.addAction("android.hardware.usb.action.USB_DEVICE_ATTACHED");
+        topologyFilter.addAction("android.hardware.usb.action.USB_DEVICE_DETACHED");
+
+        getContext().registerReceiver
+        (
+            new BroadcastReceiver()
+            {
+                @Override
+                public void onReceive(Context context, Intent intent)
+                {
+                    // the sticky SIM state handed over on registering isn't a change
+                    if (isInitialStickyBroadcast())
+                        return;
+
+                    invalidateCardTopology();
+                }
+            },
+            topologyFilter
+        );
+
+        preferenceLock = MutexKt.Mutex(false);
+        topologyLock = MutexKt.Mutex(false);
+
+        downloadExecutor = Executors.newCachedThreadPool();
+        requestExecutor = Executors.newCachedThreadPool();
+        notificationExecutor = Executors.newScheduledThreadPool(2);
+
+        cardStore = new CardStore(new File(getContext().getFilesDir(), "lpa_bridge_cards.json"), notificationExecutor);
+
+        subscribePreferences();
 
         gson = new GsonBuilder()
             .serializeNulls()
             .disableHtmlEscaping()
             .create();
 
+        callbackDispatcher = new CallbackDispatcher(gson);
+
+        // the first requests after a reboot would otherwise pay for the preference repository, channels and caches
+        if (getBridgePreferences().getBoolean("warmUp", false))
+        {
+            warmUpStatus = new WarmUpStatus("warming", System.nanoTime(), 0, 0, null);
+            requestExecutor.execute(this::warmUp);
+        }
+
         return true;
     }
 
+    // never called on a device, lets host runs (bench/) exit cleanly
+    @Override
+    public void shutdown()
+    {
+        cardStore.flush();
+        downloadExecutor.shutdownNow();
+        notificationExecutor.shutdownNow();
+        requestExecutor.shutdownNow();
+        callbackDispatcher.shutdown();
+    }
+
     @Override
     public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder)
     {
-        MatrixCursor rows;
+        long startedAt = System.nanoTime();
 
-        final String endpoint = uri.getLastPathSegment();
+        final String endpoint = getEndpointFromUri(uri);
         final Map<String, String> args = getArgsFromUri(uri);
 
-        boolean[] json = new boolean[1];
+        return execute(endpoint, endpoint, args, startedAt, rows -> toCursor(rows, projection, args), LpaProvider::withTraceColumn);
+    }
+
+    // same endpoints as query without the cursor, arg is a query string and extras override it
+    @Override
+    public Bundle call(String method, String arg, Bundle extras)
+    {
+        long startedAt = System.nanoTime();
+
+        final Map<String, String> args = getArgsFromCall(arg, extras);
+
+        return execute
+        (
+            method,
+            method,
+            args,
+            startedAt,
+            rows -> toBundle(method, rows),
+            (bundle, trace) ->
+            {
+                bundle.putString("trace", trace);
+                return bundle;
+            }
+        );
+    }
+
+    // shared by query and call, they only differ in how rows are handed back, metricsName is the endpoint unless the provider made the request itself
+    private <T> T execute(String endpoint, String metricsName, Map<String, String> args, long startedAt, Function<ResultCursor, T> serialize, BiFunction<T, String, T> addTraceTo)
+    {
+        ResultCursor rows;
+
+        long argsParsedAt = System.nanoTime();
+
+        boolean[] traced = new boolean[1];
+
+        var request = metrics.begin(metricsName == null ? "none" : metricsName);
+        Trace trace = null;
+
+        if (tryGetArgAsBoolean(args, "trace", traced) && traced[0])
+        {
+            trace = new Trace(endpoint, startedAt);
+            trace.add("argParsing", startedAt, argsParsedAt);
+        }
+
+        var context = new RequestContext(request, trace);
+        var outerContext = bindContext(context);
 
         if (endpoint == null)
         {
@@ -91,62 +288,19 @@ public class LpaProvider extends ContentProvider
         }
         else
         {
-            try
+            try (var _ = span("dispatch"))
             {
-                rows = (MatrixCursor) BuildersKt.runBlocking
-                (
-                    EmptyCoroutineContext.INSTANCE,
-                    (_, continuation) -> MutexKt.withLock
-                    (
-                        mutex,
-                        null,
-                        new Function0<MatrixCursor>()
-                        {
-                            @Override
-                            public MatrixCursor invoke()
-                            {
-                                MatrixCursor rows;
+                var lock = getEndpointLock(endpoint, args);
+                long timeoutMs = getTimeoutMs(endpoint, args);
 
-                                try
-                                {
-                                    rows = switch (endpoint)
-                                    {
-                                        // out (many): string name, bool enabled
-                                        case "preferences" -> handleGetPreferences(args);
-                                        // in: string name, bool enabled
-                                        // out: bool success
-                                        case "setPreference" -> handleSetPreference(args);
-                                        // out (many, can be empty): int slot, int port
-                                        case "cards" -> handleGetCards(args);
-                                        // in: int slot, int port
-                                        // out (many, can be empty): string iccid, bool enabled, string provider, string? nickname
-                                        case "profiles" -> handleGetProfiles(args);
-                                        // in: int slot, int port, (either {string activationCode} or {string address, string? matchingId}), string? confirmationCode, string? imei, string? callbackUrl
-                                        // out (single, can be empty): string iccid, bool enabled, string provider, string? nickname
-                                        case "downloadProfile" -> handleDownloadProfile(args);
-                                        // in: int slot, int port, string iccid
-                                        // out: bool success
-                                        case "deleteProfile" -> handleDeleteProfile(args);
-                                        // in: int slot, int port, string iccid, bool refresh=true
-                                        // out: bool success
-                                        case "enableProfile" -> handleEnableProfile(args);
-                                        // in: int slot, int port, string iccid, string? nickname
-                                        // out: bool success
-                                        case "setProfileNickname" -> handleSetProfileNickname(args);
-                                        default -> error("unknown_endpoint");
-                                    };
-                                }
-                                catch (Exception ex)
-                                {
-                                    rows = error(ex.getMessage());
-                                }
+                Callable<ResultCursor> operation = lock == null
+                    ? () -> dispatch(endpoint, args)
+                    : () -> dispatchLocked(lock, endpoint, args);
 
-                                return rows;
-                            }
-                        },
-                        continuation
-                    )
-                );
+                if (timeoutMs > 0 && DEADLINE_ENDPOINTS.contains(endpoint))
+                    rows = withDeadline(context, timeoutMs, operation);
+                else
+                    rows = operation.call();
             }
             catch (Exception ex)
             {
@@ -154,12 +308,142 @@ public class LpaProvider extends ContentProvider
             }
         }
 
-        rows = projectColumns(rows, projection, new String[] { "error" });
+        var error = getError(rows);
 
-        if (tryGetArgAsBoolean(args, "json", json) && json[0])
-            rows = row("rows", rowsToJson(rows));
+        // keeps made-up endpoint names out of the metrics
+        if ("unknown_endpoint".equals(error))
+            request.setEndpoint("unknown");
 
-        return rows;
+        long serializationStartedAt = System.nanoTime();
+
+        T result = serialize.apply(rows);
+
+        addPhase(Metrics.Phase.SERIALIZATION, System.nanoTime() - serializationStartedAt);
+        metrics.end(request, error);
+        bindContext(outerContext);
+
+        if (trace != null)
+        {
+            trace.end(error);
+            addTrace(trace);
+
+            result = addTraceTo.apply(result, trace.toJson());
+        }
+
+        return result;
+    }
+
+    private ResultCursor dispatch(String endpoint, Map<String, String> args) throws Exception
+    {
+        return switch (endpoint)
+        {
+            // out (many): string name, bool enabled
+            case "preferences" -> handleGetPreferences(args);
+            // in: string name, bool enabled
+            // out: bool success
+            case "setPreference" -> handleSetPreference(args);
+            // out (many, can be empty): int slot, int port
+            case "cards" -> handleGetCards(args);
+            // in: int slot, int port
+            // out (many, can be empty): string iccid, bool enabled, string provider, string? nickname
+            case "profiles" -> handleGetProfiles(args);
+            // in: int slot, int port, (either {string activationCode} or {string address, string? matchingId}), string? confirmationCode, string? imei, string? callbackUrl, bool async=false
+            // out (single, can be empty): string iccid, bool enabled, string provider, string? nickname
+            // out (async): string id, int slot, int port, string state, string? downloadState, int progress, string? iccid, string? error
+            case "downloadProfile" -> handleDownloadProfile(args);
+            // out (many, can be empty): string id, int slot, int port, string state, string? downloadState, int progress, string? iccid, string? error
+            case "jobs" -> handleGetJobs(args);
+            // in: string tasks (json array of {int slot, int port, string activationCode, string? nickname, bool enable=false, int priority=0, ...downloadProfile args}), int? maxPerSmdp
+            // out (many, can be empty): string id, string submission, int slot, int port, int priority, string state, string? step, string? iccid, string? error
+            case "provision" -> handleProvision(args);
+            // in: string? submission
+            // out (many, can be empty): string id, string submission, int slot, int port, int priority, string state, string? step, string? iccid, string? error
+            case "provisioningTasks" -> handleGetProvisioningTasks(args);
+            // in: string? submission
+            // out: int total, int queued, int running, int completed, int failed, int progress
+            case "provisioning" -> handleGetProvisioning(args);
+            // out: int pending, int enqueued, int delivered, int retried, int coalesced, int dropped, int failed
+            case "callbacks" -> handleGetCallbacks(args);
+            // out (many, can be empty): string endpoint, int startedAt, int duration, string? error, string spans
+            case "traces" -> handleGetTraces(args);
+            // out (many): string metric, int count, double? p50, double? p95, double? p99, double? max
+            case "metrics" -> handleGetMetrics(args);
+            // out (many, can be empty): int slot, int port, int acquired, int reused
+            case "channels" -> handleGetChannels(args);
+            // in: (either {string id} or {int slot, int port})
+            // out (many, can be empty): string? id, int slot, int port, bool cancelled
+            case "cancel" -> handleCancel(args);
+            // out (many): string endpoint, int timeoutMs
+            case "timeouts" -> handleGetTimeouts(args);
+            // out: string state, int cards, int duration, string? error
+            case "health" -> handleGetHealth(args);
+            // in: string endpoint, int timeoutMs
+            // out: bool success
+            case "setTimeout" -> handleSetTimeout(args);
+            // out (many, can be empty): int slot, int port, string iccid, string operation, int attempts, string? error
+            case "notifications" -> handleGetNotifications(args);
+            // in: int? slot, int? port
+            // out (many, can be empty): int slot, int port, int sent, int failed, int pending
+            case "flushNotifications" -> handleFlushNotifications(args);
+            // in: int slot, int port, string ops (json array of {string endpoint, ...args}), bool stopOnError=true
+            // out (many): int index, string endpoint, string rows (json)
+            case "batch" -> handleBatch(args);
+            // in: string id
+            // out: string id, int slot, int port, string state, string? downloadState, int progress, string? iccid, string? error
+            case "job" -> handleGetJob(args);
+            // in: int slot, int port, string iccid
+            // out: bool success
+            case "deleteProfile" -> handleDeleteProfile(args);
+            // in: int slot, int port, string iccid, bool refresh=true
+            // out: bool success
+            case "enableProfile" -> handleEnableProfile(args);
+            // in: int slot, int port, string iccid, string? nickname
+            // out: bool success
+            case "setProfileNickname" -> handleSetProfileNickname(args);
+            default -> error("unknown_endpoint");
+        };
+    }
+
+    // identical reads share one pass through the lock, sync downloads can be cancelled while they wait for it
+    private ResultCursor dispatchLocked(EndpointLock lock, String endpoint, Map<String, String> args) throws Exception
+    {
+        // a write holding the card would keep the read waiting
+        if (endpoint.equals("profiles"))
+        {
+            var staleProfiles = getStaleProfiles(args);
+
+            if (staleProfiles != null)
+                return staleProfiles;
+        }
+
+        var readKey = getCoalescingKey(endpoint, args);
+
+        if (readKey != null)
+            return coalesce(readKey, lock, () -> dispatchInChannelSession(endpoint, args));
+
+        if (endpoint.equals("downloadProfile"))
+            return withTrackedDownload(null, args, () -> lock.withLock(() -> dispatchInChannelSession(endpoint, args)));
+
+        return lock.withLock(() -> dispatchInChannelSession(endpoint, args));
+    }
+
+    // multi-step card endpoints run every LPA call on one channel instead of acquiring it per call
+    private ResultCursor dispatchInChannelSession(String endpoint, Map<String, String> args) throws Exception
+    {
+        boolean multiStep = switch (endpoint)
+        {
+            case "downloadProfile" -> !isAsyncDownload(args);
+            case "deleteProfile", "enableProfile", "setProfileNickname" -> true;
+            default -> false;
+        };
+
+        int[] slot = new int[1];
+        int[] port = new int[1];
+
+        if (!multiStep || !tryGetArgAsInt(args, "slot", slot) || !tryGetArgAsInt(args, "port", port))
+            return dispatch(endpoint, args);
+
+        return withChannelSession(slot[0], port[0], () -> dispatch(endpoint, args));
     }
 
     // region Mandatory Overrides
@@ -180,24 +464,18 @@ public class LpaProvider extends ContentProvider
 
     // region Handlers
 
-    private MatrixCursor handleGetPreferences(Map<String, String> args) throws Exception
+    private ResultCursor handleGetPreferences(Map<String, String> args) throws Exception
     {
-        var preferences = List.of
-        (
-            "verboseLogging",
-            "safeguardActiveProfile",
-            "filterProfileList",
-            "ignoreTlsCertificate",
-            "notificationsDownload",
-            "notificationsDelete",
-            "notificationsEnableDisable"
-        );
+        // read before the values, a change in between shows up as a newer version on the next read
+        String version = getVersion(preferencesGeneration);
 
-        if (!(appContainer instanceof UnprivilegedAppContainer))
-            preferences.add(1, "forceUseTelephonyManager");
+        if (isNotModified(args, version))
+            return notModified(version);
 
-        var columns = new String[] { "name", "enabled" };
-        var values = new Object[preferences.size()][2];
+        var preferences = getPreferenceNames();
+
+        var columns = new String[] { "name", "enabled", "version" };
+        var values = new Object[preferences.size()][3];
 
         for (int valIndex = 0; valIndex < preferences.size(); valIndex++)
         {
@@ -205,12 +483,13 @@ public class LpaProvider extends ContentProvider
 
             values[valIndex][0] = name;
             values[valIndex][1] = getPreference(name);
+            values[valIndex][2] = version;
         }
 
         return rows(columns, values);
     }
 
-    private MatrixCursor handleSetPreference(Map<String, String> args) throws Exception
+    private ResultCursor handleSetPreference(Map<String, String> args) throws Exception
     {
         String[] name = new String[1];
         boolean[] enabled = new boolean[1];
@@ -226,65 +505,64 @@ public class LpaProvider extends ContentProvider
         return success();
     }
 
-    private MatrixCursor handleGetCards(Map<String, String> args) throws Exception
+    private ResultCursor handleGetCards(Map<String, String> args) throws Exception
     {
-        var euiccChannelManager = (DefaultEuiccChannelManager) appContainer.getEuiccChannelManager();
+        boolean[] fresh = new boolean[1];
+        tryGetArgAsBoolean(args, "fresh", fresh);
 
-        var getUiccCardsMethod = DefaultEuiccChannelManager.class.getDeclaredMethod("getUiccCards");
-        getUiccCardsMethod.setAccessible(true);
+        var cards = getCardTopology(fresh[0]);
+        boolean stale = cardTopologyRestored;
+        String version = getVersion(topologyGeneration);
 
-        @SuppressWarnings("unchecked")
-        var cards = (List<UiccCardInfoCompat>) getUiccCardsMethod.invoke(euiccChannelManager);
+        if (isNotModified(args, version))
+            return notModified(version, stale);
 
-        var rows = new MatrixCursor(new String[]
+        String[] columns =
         {
             "slot",
             "port",
-            "eid"
-        });
+            "eid",
+            "version",
+            "stale"
+        };
 
-        for (UiccCardInfoCompat card : cards)
+        // like profiles, stale only on a restored list that may not match the cards
+        var rows = new ResultCursor(stale ? columns : Arrays.copyOf(columns, columns.length - 1));
+
+        for (CardInfo card : cards)
         {
-            if (!card.isRemovable())
+            if (!card.removable() || card.eid() == null)
                 continue;
 
-            for (UiccPortInfoCompat cardPort : card.getPorts())
+            rows.addRow(new Object[]
             {
-                int slot = card.getPhysicalSlotIndex();
-                int port = cardPort.getPortIndex();
-
-                var euiccChannel = findEuiccChannel(euiccChannelManager, slot, port);
-
-                if (euiccChannel != null)
-                {
-                    String eid = withEuiccChannel
-                    (
-                        slot,
-                        port,
-                        (channel, _) -> channel.getLpa().getEID()
-                    );
-
-                    rows.addRow(new Object[]
-                    {
-                        slot,
-                        port,
-                        eid
-                    });
-                }
-            }
+                card.slot(),
+                card.port(),
+                card.eid(),
+                version,
+                stale
+            });
         }
 
         return rows;
     }
 
-    private MatrixCursor handleGetProfiles(Map<String, String> args) throws Exception
+    private ResultCursor handleGetProfiles(Map<String, String> args) throws Exception
     {
-        var profiles = getProfiles(args);
+        // filterProfileList may change while the list is read, the card's generation can't (card lock)
+        long preferencesGeneration = this.preferencesGeneration;
+
+        var cachedProfiles = loadProfiles(args);
+        var profiles = filterProfiles(cachedProfiles.profiles());
+        String version = getProfilesVersion(args, preferencesGeneration);
+
+        if (isNotModified(args, version))
+            return notModified(version, cachedProfiles.restored());
 
-        return profiles(profiles);
+        return profiles(profiles, version, cachedProfiles.restored());
     }
 
-    private MatrixCursor handleDownloadProfile(Map<String, String> args) throws Exception
+    private ResultCursor handleDownloadProfile(Map<String, String> args) throws Exception
     {
         String[] address = new String[1];
         String[] matchingId = { args.get("matchingId") };
@@ -307,288 +585,2255 @@ public class LpaProvider extends ContentProvider
         else if (!tryGetArgAsString(args, "address", address))
             return missingArgError("activationCode_or_address");
 
-        var profilesBefore = getProfiles(args);
+        if (isAsyncDownload(args))
+        {
+            int[] slot = new int[1];
+            int[] port = new int[1];
+            requireSlotAndPort(args, slot, port);
 
-        var iccidsBefore = profilesBefore.stream()
-            .map(LocalProfileInfo::getIccid)
-            .collect(Collectors.toSet());
+            var job = new DownloadJob(slot[0], port[0]);
+            addDownloadJob(job);
 
-        withEuiccChannel
-        (
-            args,
-            (channel, _) ->
+            downloadExecutor.execute(() ->
             {
-                channel.getLpa().downloadProfile
-                (
-                    address[0],
-                    matchingId[0],
-                    imei[0],
-                    confirmationCode[0],
-                    new ProfileDownloadCallback()
-                    {
-                        @Override
-                        public void onStateUpdate(ProfileDownloadCallback.DownloadState state)
-                        {
-                            new Thread(() ->
-                            {
-                                try
-                                {
-                                    if (state.getProgress() == 0)
-                                        return;
+                var request = metrics.begin("downloadJob");
+                var context = new RequestContext(request, null);
+                var outerContext = bindContext(context);
 
-                                    String[] callbackUrl = new String[1];
+                // before running() so a cancel that misses the queued job finds its request
+                downloadsInFlight.put(job.getId(), new TrackedDownload(job.getId(), slot[0], port[0], context));
 
-                                    if (tryGetArgAsString(args, "callbackUrl", callbackUrl))
-                                    {
-                                        var url = new URI(callbackUrl[0]).toURL();
-
-                                        var data = new LinkedHashMap<String, Object>()
-                                        {{
-                                            put("timestamp", Instant.now().getEpochSecond());
-                                            put("state", state.name());
-                                            put("progress", state.getProgress());
-                                            put("address", address[0]);
-                                            put("matchingId", matchingId[0]);
-                                            put("confirmationCode", confirmationCode[0]);
-                                            put("imei", imei[0]);
-                                        }};
-
-                                        httpPostAsJson(url, data);
-                                    }
-                                }
-                                catch (Exception ex)
-                                {
-                                    // ignored
-                                }
-                            }).start();
-                        }
-                    }
-                );
+                try
+                {
+                    if (!job.running())
+                        throw new Exception("cancelled");
 
-                return null;
-            }
-        );
+                    var downloadedProfile = withLock
+                    (
+                        getCardLock(slot[0], port[0]),
+                        CardLock.Priority.LONG_WRITE,
+                        () -> withChannelSession
+                        (
+                            slot[0],
+                            port[0],
+                            () -> downloadProfile(args, address[0], matchingId[0], confirmationCode[0], imei[0], job)
+                        )
+                    );
 
-        var profilesAfter = getProfiles(args);
+                    job.completed(downloadedProfile == null ? null : downloadedProfile.getIccid());
+                }
+                catch (Exception ex)
+                {
+                    job.failed(ex.getMessage());
+                }
+                finally
+                {
+                    downloadsInFlight.remove(job.getId());
+                }
 
-        var downloadedProfile = profilesAfter.stream()
-            .filter(p -> !iccidsBefore.contains(p.getIccid()))
-            .findFirst()
-            .orElse(null);
+                metrics.end(request, job.getError());
+                bindContext(outerContext);
+            });
+
+            return jobs(Collections.singletonList(job));
+        }
+
+        var downloadedProfile = downloadProfile(args, address[0], matchingId[0], confirmationCode[0], imei[0], null);
 
         if (downloadedProfile == null)
             return empty();
 
-        processNotification(args, downloadedProfile.getIccid(), LocalProfileNotification.Operation.Install);
-
         return profile(downloadedProfile);
     }
 
-    private MatrixCursor handleDeleteProfile(Map<String, String> args) throws Exception
+    private ResultCursor handleGetJobs(Map<String, String> args) throws Exception
     {
-        String[] iccid = new String[1];
+        var jobs = downloadJobs.values().stream()
+            .sorted(Comparator.comparingLong(DownloadJob::getCreatedAt))
+            .collect(Collectors.toList());
 
-        if (!tryGetArgAsString(args, "iccid", iccid))
-            return missingArgError("iccid");
+        return jobs(jobs);
+    }
 
-        safeguardActiveProfile(args, iccid[0]);
+    private ResultCursor handleProvision(Map<String, String> args) throws Exception
+    {
+        String[] tasksArg = new String[1];
+        int[] maxPerSmdp = new int[1];
 
-        boolean success = withEuiccChannel
-        (
-            args,
-            (channel, _) -> channel.getLpa().deleteProfile(iccid[0])
-        );
+        if (!tryGetArgAsString(args, "tasks", tasksArg))
+            return missingArgError("tasks");
 
-        if (success)
-            processNotification(args, iccid[0], LocalProfileNotification.Operation.Delete);
+        if (!tryGetArgAsInt(args, "maxPerSmdp", maxPerSmdp))
+            maxPerSmdp[0] = DEFAULT_SMDP_CONCURRENCY;
+        else if (maxPerSmdp[0] < 1)
+            return error("invalid_arg_maxPerSmdp");
 
-        return success(success);
-    }
+        JsonArray taskArray;
 
-    private MatrixCursor handleEnableProfile(Map<String, String> args) throws Exception
-    {
-        String[] iccid = new String[1];
-        boolean[] refresh = new boolean[1];
+        try
+        {
+            taskArray = JsonParser.parseString(tasksArg[0]).getAsJsonArray();
+        }
+        catch (Exception ex)
+        {
+            return error("invalid_arg_tasks");
+        }
 
-        if (!tryGetArgAsString(args, "iccid", iccid))
-            return missingArgError("iccid");
+        String submission = UUID.randomUUID().toString();
+        var tasks = new ArrayList<ProvisioningTask>();
 
-        if (!tryGetArgAsBoolean(args, "refresh", refresh))
-            refresh[0] = true;
+        // nothing is queued unless every task is valid
+        for (var taskElement : taskArray)
+        {
+            if (!taskElement.isJsonObject())
+                return error("invalid_arg_tasks");
 
-        var profiles = getProfiles(args);
-        var previousActiveProfile = LPAUtilsKt.getEnabled(profiles);
+            var taskArgs = getArgsFromJson(taskElement.getAsJsonObject());
 
-        boolean success = withEuiccChannel
-        (
-            args,
-            (channel, _) -> channel.getLpa().enableProfile(iccid[0], refresh[0])
-        );
+            int[] slot = new int[1];
+            int[] port = new int[1];
+            int[] priority = new int[1];
+            boolean[] enable = new boolean[1];
+            String[] activationCode = new String[1];
 
-        if (success)
+            requireSlotAndPort(taskArgs, slot, port);
+
+            if (!tryGetArgAsString(taskArgs, "activationCode", activationCode))
+                return missingArgError("activationCode");
+
+            String smdpAddress;
+
+            try
+            {
+                smdpAddress = ActivationCode.Companion.fromString(activationCode[0]).getAddress();
+            }
+            catch (Exception ex)
+            {
+                return error("invalid_arg_activationCode");
+            }
+
+            tryGetArgAsInt(taskArgs, "priority", priority);
+            tryGetArgAsBoolean(taskArgs, "enable", enable);
+
+            // the scheduler runs every step itself
+            taskArgs.remove("async");
+            taskArgs.remove("priority");
+            taskArgs.remove("enable");
+
+            tasks.add(new ProvisioningTask(submission, provisioningSequence.incrementAndGet(), slot[0], port[0], priority[0], enable[0], smdpAddress, maxPerSmdp[0], taskArgs));
+        }
+
+        synchronized (provisioningTasks)
         {
-            if (previousActiveProfile != null)
-                processNotification(args, previousActiveProfile.getIccid(), LocalProfileNotification.Operation.Disable);
+            for (ProvisioningTask task : tasks)
+                provisioningTasks.put(task.getId(), task);
 
-            processNotification(args, iccid[0], LocalProfileNotification.Operation.Enable);
+            evictProvisioningTasks();
         }
 
-        return success(success);
+        scheduleProvisioning();
+
+        return tasks(tasks);
     }
 
-    private MatrixCursor handleSetProfileNickname(Map<String, String> args) throws Exception
+    private ResultCursor handleGetProvisioningTasks(Map<String, String> args) throws Exception
     {
-        String[] iccid = new String[1];
-        String[] nickname = { args.get("nickname") };
+        return tasks(getProvisioningTasks(args));
+    }
 
-        if (!tryGetArgAsString(args, "iccid", iccid))
-            return missingArgError("iccid");
+    private ResultCursor handleGetProvisioning(Map<String, String> args) throws Exception
+    {
+        var tasks = getProvisioningTasks(args);
+        var counts = new int[ProvisioningTask.State.values().length];
 
-        if (nickname[0] == null)
-            nickname[0] = "";
+        for (ProvisioningTask task : tasks)
+            counts[task.getState().ordinal()]++;
 
-        withEuiccChannel
-        (
-            args,
-            (channel, _) ->
+        int finished = counts[ProvisioningTask.State.COMPLETED.ordinal()] + counts[ProvisioningTask.State.FAILED.ordinal()];
+
+        String[] columns =
+        {
+            "total",
+            "queued",
+            "running",
+            "completed",
+            "failed",
+            "progress"
+        };
+
+        return rows(columns, new Object[][]
+        {
             {
-                channel.getLpa().setNickname(iccid[0], nickname[0]);
-                return null;
+                tasks.size(),
+                counts[ProvisioningTask.State.QUEUED.ordinal()],
+                counts[ProvisioningTask.State.RUNNING.ordinal()],
+                counts[ProvisioningTask.State.COMPLETED.ordinal()],
+                counts[ProvisioningTask.State.FAILED.ordinal()],
+                tasks.isEmpty() ? 100 : finished * 100 / tasks.size()
             }
-        );
-
-        return success();
+        });
     }
 
-    // endregion
+    private ResultCursor handleCancel(Map<String, String> args) throws Exception
+    {
+        String[] id = new String[1];
+        int[] slot = new int[1];
+        int[] port = new int[1];
 
-    // region LPA Helpers
+        boolean byId = tryGetArgAsString(args, "id", id);
 
-    private static EuiccChannel findEuiccChannel(DefaultEuiccChannelManager euiccChannelManager, int slot, int port) throws Exception
-    {
-        var findEuiccChannelByPortMethod = DefaultEuiccChannelManager.class.getDeclaredMethod("findEuiccChannelByPort", int.class, int.class, Continuation.class);
-        findEuiccChannelByPortMethod.setAccessible(true);
+        if (!byId)
+            requireSlotAndPort(args, slot, port);
 
-        return (EuiccChannel) BuildersKt.runBlocking
-        (
-            EmptyCoroutineContext.INSTANCE,
-            (_, continuation) ->
+        var rows = new ResultCursor(new String[]
+        {
+            "id",
+            "slot",
+            "port",
+            "cancelled"
+        });
+
+        // queued work is dropped before it reaches the card, started work is cancelled through its request below
+        for (DownloadJob job : downloadJobs.values())
+        {
+            if (isCancelTarget(byId, id[0], slot[0], port[0], job.getId(), job.getSlot(), job.getPort()) && job.cancelQueued())
+                rows.addRow(new Object[] { job.getId(), job.getSlot(), job.getPort(), true });
+        }
+
+        synchronized (provisioningTasks)
+        {
+            for (ProvisioningTask task : provisioningTasks.values())
             {
-                try
-                {
-                    return findEuiccChannelByPortMethod.invoke(euiccChannelManager, slot, port, continuation);
-                }
-                catch (Exception ex)
+                if (task.getState() == ProvisioningTask.State.QUEUED && isCancelTarget(byId, id[0], slot[0], port[0], task.getId(), task.getSlot(), task.getPort()))
                 {
-                    return null;
+                    task.failed("cancelled");
+                    rows.addRow(new Object[] { task.getId(), task.getSlot(), task.getPort(), true });
                 }
             }
-        );
+        }
+
+        for (TrackedDownload download : downloadsInFlight.values())
+        {
+            if (isCancelTarget(byId, id[0], slot[0], port[0], download.id(), download.slot(), download.port()))
+                rows.addRow(new Object[] { download.id(), download.slot(), download.port(), download.context().cancel("cancelled") });
+        }
+
+        return rows;
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> T withEuiccChannel(int slot, int port, Function2<EuiccChannel, Continuation<? super T>, ?> operation) throws Exception
+    private ResultCursor handleGetTimeouts(Map<String, String> args) throws Exception
     {
-        var euiccChannelManager = appContainer.getEuiccChannelManager();
+        var rows = new ResultCursor(new String[]
+        {
+            "endpoint",
+            "timeoutMs"
+        });
 
-        return (T) BuildersKt.runBlocking
-        (
-            EmptyCoroutineContext.INSTANCE,
-            (_, continuation) -> euiccChannelManager.withEuiccChannel(slot, port, operation, continuation)
-        );
+        for (String endpoint : DEADLINE_ENDPOINTS)
+            rows.addRow(new Object[] { endpoint, endpointTimeouts.getOrDefault(endpoint, 0L) });
+
+        return rows;
     }
 
-    private <T> T withEuiccChannel(Map<String, String> args, Function2<EuiccChannel, Continuation<? super T>, ?> operation) throws Exception
+    private ResultCursor handleSetTimeout(Map<String, String> args) throws Exception
     {
-        var slot = new int[1];
-        var port = new int[1];
-        requireSlotAndPort(args, slot, port);
+        String[] endpoint = new String[1];
+        int[] timeoutMs = new int[1];
 
-        return withEuiccChannel(slot[0], port[0], operation);
+        if (!tryGetArgAsString(args, "endpoint", endpoint))
+            return missingArgError("endpoint");
+
+        if (!DEADLINE_ENDPOINTS.contains(endpoint[0]))
+            return error("invalid_arg_endpoint");
+
+        if (!args.containsKey("timeoutMs"))
+            return missingArgError("timeoutMs");
+
+        if (!tryGetArgAsInt(args, "timeoutMs", timeoutMs) || timeoutMs[0] < 0)
+            return error("invalid_arg_timeoutMs");
+
+        if (timeoutMs[0] == 0)
+            endpointTimeouts.remove(endpoint[0]);
+        else
+            endpointTimeouts.put(endpoint[0], (long) timeoutMs[0]);
+
+        return success();
     }
 
-    private List<LocalProfileInfo> getProfiles(Map<String, String> args) throws Exception
+    private ResultCursor handleGetJob(Map<String, String> args) throws Exception
     {
-        @SuppressWarnings("unchecked")
-        var profiles = (List<LocalProfileInfo>) withEuiccChannel
+        String[] id = new String[1];
+
+        if (!tryGetArgAsString(args, "id", id))
+            return missingArgError("id");
+
+        var job = downloadJobs.get(id[0]);
+
+        if (job == null)
+            return error("unknown_job");
+
+        return jobs(Collections.singletonList(job));
+    }
+
+    private ResultCursor handleGetCallbacks(Map<String, String> args) throws Exception
+    {
+        var stats = callbackDispatcher.getStats();
+
+        var columns = stats.keySet().toArray(new String[0]);
+        var values = stats.values().toArray();
+
+        return rows(columns, new Object[][] { values });
+    }
+
+    private ResultCursor handleGetMetrics(Map<String, String> args) throws Exception
+    {
+        var rows = new ResultCursor(new String[]
+        {
+            "metric",
+            "count",
+            "p50",
+            "p95",
+            "p99",
+            "max"
+        });
+
+        for (Object[] row : metrics.getRows())
+            rows.addRow(row);
+
+        for (var stat : callbackDispatcher.getStats().entrySet())
+            rows.addRow(Metrics.counterRow("callbacks." + stat.getKey(), stat.getValue()));
+
+        rows.addRow(Metrics.counterRow("profiles.stale", staleReads.sum()));
+        rows.addRow(Metrics.counterRow("profiles.restored", restoredReads.sum()));
+
+        return rows;
+    }
+
+    private ResultCursor handleGetTraces(Map<String, String> args) throws Exception
+    {
+        var rows = new ResultCursor(new String[]
+        {
+            "endpoint",
+            "startedAt",
+            "duration",
+            "error",
+            "spans"
+        });
+
+        for (Trace trace : getTraces())
+        {
+            rows.addRow(new Object[]
+            {
+                trace.getEndpoint(),
+                trace.getStartedAtMillis(),
+                trace.getDuration(),
+                trace.getError(),
+                trace.toJson()
+            });
+        }
+
+        return rows;
+    }
+
+    private ResultCursor handleGetHealth(Map<String, String> args) throws Exception
+    {
+        var status = warmUpStatus;
+
+        long endedAt = status.endedAt() == 0 ? System.nanoTime() : status.endedAt();
+        long duration = status.startedAt() == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(endedAt - status.startedAt());
+
+        return rows
         (
-            args,
-            (channel, _) -> channel.getLpa().getProfiles()
+            new String[] { "state", "cards", "duration", "error" },
+            new Object[][] { { status.state(), status.cards(), duration, status.error() } }
         );
+    }
 
-        boolean filterProfileList = getPreference("filterProfileList");
+    private ResultCursor handleGetChannels(Map<String, String> args) throws Exception
+    {
+        String[] columns =
+        {
+            "slot",
+            "port",
+            "acquired",
+            "reused"
+        };
 
-        if (filterProfileList)
-            return LPAUtilsKt.getOperational(profiles);
+        Object[][] rows = channelStats.values().stream()
+            .sorted(Comparator.<ChannelStats>comparingInt(c -> c.slot).thenComparingInt(c -> c.port))
+            .map(c -> new Object[]
+            {
+                c.slot,
+                c.port,
+                c.acquired.sum(),
+                c.reused.sum()
+            })
+            .toArray(Object[][]::new);
 
-        return profiles;
+        return rows(columns, rows);
     }
 
-    private void processNotification(Map<String, String> args, String iccid, LocalProfileNotification.Operation operation)
+    private ResultCursor handleGetNotifications(Map<String, String> args) throws Exception
+    {
+        String[] columns =
+        {
+            "slot",
+            "port",
+            "iccid",
+            "operation",
+            "attempts",
+            "error"
+        };
+
+        Object[][] rows = getPendingNotifications().stream()
+            .map(n -> new Object[]
+            {
+                n.slot,
+                n.port,
+                n.iccid,
+                n.operation.name(),
+                n.attempts,
+                n.error
+            })
+            .toArray(Object[][]::new);
+
+        return rows(columns, rows);
+    }
+
+    private ResultCursor handleFlushNotifications(Map<String, String> args) throws Exception
+    {
+        int[] slot = new int[1];
+        int[] port = new int[1];
+
+        var cards = new LinkedHashSet<List<Integer>>();
+
+        if (tryGetArgAsInt(args, "slot", slot) || tryGetArgAsInt(args, "port", port))
+        {
+            requireSlotAndPort(args, slot, port);
+            cards.add(List.of(slot[0], port[0]));
+        }
+        else
+        {
+            for (PendingNotification pending : getPendingNotifications())
+                cards.add(List.of(pending.slot, pending.port));
+        }
+
+        var rows = new ResultCursor(new String[]
+        {
+            "slot",
+            "port",
+            "sent",
+            "failed",
+            "pending"
+        });
+
+        for (List<Integer> card : cards)
+        {
+            var flush = flushNotifications(card.get(0), card.get(1));
+
+            rows.addRow(new Object[]
+            {
+                flush.slot(),
+                flush.port(),
+                flush.sent(),
+                flush.failed(),
+                flush.pending()
+            });
+        }
+
+        return rows;
+    }
+
+    private ResultCursor handleBatch(Map<String, String> args) throws Exception
     {
+        int[] slot = new int[1];
+        int[] port = new int[1];
+        String[] opsArg = new String[1];
+        boolean[] stopOnError = new boolean[1];
+
+        requireSlotAndPort(args, slot, port);
+
+        if (!tryGetArgAsString(args, "ops", opsArg))
+            return missingArgError("ops");
+
+        if (!tryGetArgAsBoolean(args, "stopOnError", stopOnError))
+            stopOnError[0] = true;
+
+        JsonArray ops;
+
         try
         {
-            var preferenceName = switch (operation)
+            ops = JsonParser.parseString(opsArg[0]).getAsJsonArray();
+        }
+        catch (Exception ex)
+        {
+            return error("invalid_arg_ops");
+        }
+
+        var rows = new ResultCursor(new String[]
+        {
+            "index",
+            "endpoint",
+            "rows"
+        });
+
+        withChannelSession
+        (
+            slot[0],
+            port[0],
+            () ->
             {
-                case Install -> "notificationsDownload";
-                case Delete -> "notificationsDelete";
-                case Enable, Disable -> "notificationsEnableDisable";
-            };
+                for (int opIndex = 0; opIndex < ops.size(); opIndex++)
+                {
+                    Map<String, String> opArgs = new LinkedHashMap<>();
+                    String opEndpoint = null;
 
-            if (!getPreference(preferenceName))
-                return;
+                    if (ops.get(opIndex).isJsonObject())
+                    {
+                        opArgs = getArgsFromJson(ops.get(opIndex).getAsJsonObject());
+                        opEndpoint = opArgs.remove("endpoint");
+                    }
+
+                    // every op runs against the batch card
+                    opArgs.put("slot", Integer.toString(slot[0]));
+                    opArgs.put("port", Integer.toString(port[0]));
+
+                    ResultCursor opRows;
+
+                    try
+                    {
+                        opRows = switch (opEndpoint == null ? "" : opEndpoint)
+                        {
+                            case "" -> missingArgError("endpoint");
+                            case "profiles", "downloadProfile", "deleteProfile", "enableProfile", "setProfileNickname" -> dispatch(opEndpoint, opArgs);
+                            default -> error("unsupported_batch_endpoint");
+                        };
+                    }
+                    catch (Exception ex)
+                    {
+                        opRows = error(ex.getMessage());
+                    }
+
+                    rows.addRow(new Object[]
+                    {
+                        opIndex,
+                        opEndpoint,
+                        rowsToJson(opRows)
+                    });
+
+                    if (stopOnError[0] && isFailure(opRows))
+                        break;
+                }
+
+                return null;
+            }
+        );
+
+        return rows;
+    }
+
+    private ResultCursor handleDeleteProfile(Map<String, String> args) throws Exception
+    {
+        String[] iccid = new String[1];
+
+        if (!tryGetArgAsString(args, "iccid", iccid))
+            return missingArgError("iccid");
+
+        safeguardActiveProfile(args, iccid[0]);
 
-            @SuppressWarnings("unchecked")
-            var notifications = (List<LocalProfileNotification>) withEuiccChannel
+        boolean success = false;
+
+        beginCardWrite();
+
+        try
+        {
+            success = withEuiccChannel
             (
                 args,
-                (channel, _) -> channel.getLpa().getNotifications()
+                (channel, _) -> lpa(channel).deleteProfile(iccid[0])
             );
+        }
+        finally
+        {
+            if (success)
+                removeCachedProfile(args, iccid[0]);
+            else
+                invalidateProfiles(args);
+        }
 
-            var notification = notifications.stream()
-                .filter(n -> n.getIccid().equals(iccid) && n.getProfileManagementOperation() == operation)
-                .sorted((n1, n2) -> Long.compare(n2.getSeqNumber(), n1.getSeqNumber())) // descending
-                .findFirst()
-                .orElse(null);
+        if (success)
+            processNotification(args, iccid[0], LocalProfileNotification.Operation.Delete);
 
-            if (notification == null)
-                return;
+        return success(success);
+    }
 
-            withEuiccChannel
+    private ResultCursor handleEnableProfile(Map<String, String> args) throws Exception
+    {
+        String[] iccid = new String[1];
+        boolean[] refresh = new boolean[1];
+
+        if (!tryGetArgAsString(args, "iccid", iccid))
+            return missingArgError("iccid");
+
+        if (!tryGetArgAsBoolean(args, "refresh", refresh))
+            refresh[0] = true;
+
+        var profiles = getProfiles(args);
+        var previousActiveProfile = LPAUtilsKt.getEnabled(profiles);
+
+        boolean success;
+
+        beginCardWrite();
+
+        try
+        {
+            success = withEuiccChannel
             (
                 args,
-                (channel, _) ->
-                {
-                    channel.getLpa().handleNotification(notification);
-                    channel.getLpa().deleteNotification(notification.getSeqNumber());
-                    return null;
-                }
+                (channel, _) -> lpa(channel).enableProfile(iccid[0], refresh[0])
             );
         }
-        catch (Exception ex)
+        finally
         {
-            // ignored
+            invalidateProfiles(args);
         }
-    }
 
-    // endregion
+        if (success)
+        {
+            if (previousActiveProfile != null)
+                processNotification(args, previousActiveProfile.getIccid(), LocalProfileNotification.Operation.Disable);
 
-    // region Preference Helpers
+            processNotification(args, iccid[0], LocalProfileNotification.Operation.Enable);
+        }
 
-    private List<String> invertedPreferences = List.of
-    (
-        "safeguardActiveProfile",
-        "filterProfileList"
-    );
+        return success(success);
+    }
 
-    private PreferenceFlowWrapper<Boolean> getPreferenceFlow(String name) throws Exception
+    private ResultCursor handleSetProfileNickname(Map<String, String> args) throws Exception
     {
-        var preferenceRepository = PreferenceUtilsKt.getPreferenceRepository(getContext());
+        String[] iccid = new String[1];
+        String[] nickname = { args.get("nickname") };
 
-        return switch (name)
-        {
-            case "verboseLogging" -> preferenceRepository.getVerboseLoggingFlow(); // not used here
-            case "forceUseTelephonyManager" -> preferenceRepository.getForceUseTMAPIFlow(); // only used by PrivilegedAppContainer
+        if (!tryGetArgAsString(args, "iccid", iccid))
+            return missingArgError("iccid");
+
+        if (nickname[0] == null)
+            nickname[0] = "";
+
+        beginCardWrite();
+
+        try
+        {
+            withEuiccChannel
+            (
+                args,
+                (channel, _) ->
+                {
+                    lpa(channel).setNickname(iccid[0], nickname[0]);
+                    return null;
+                }
+            );
+        }
+        finally
+        {
+            invalidateProfiles(args);
+        }
+
+        return success();
+    }
+
+    // endregion
+
+    // region Lock Helpers
+
+    // runs an endpoint while holding whatever it locks
+    private interface EndpointLock
+    {
+        ResultCursor withLock(Callable<ResultCursor> operation) throws Exception;
+    }
+
+    // cards hold the topology lock and take each card lock in turn, card endpoints only ever take their own card lock
+    private EndpointLock getEndpointLock(String endpoint, Map<String, String> args)
+    {
+        return switch (endpoint)
+        {
+            case "preferences", "setPreference" -> operation -> withLock(preferenceLock, operation);
+            case "cards" -> operation -> withLock(topologyLock, operation);
+            // async downloads take the card lock on the download executor instead
+            case "downloadProfile" -> isAsyncDownload(args) ? null : getCardLock(args, CardLock.Priority.LONG_WRITE);
+            case "profiles" -> getCardLock(args, CardLock.Priority.READ);
+            case "deleteProfile", "enableProfile", "setProfileNickname" -> getCardLock(args, CardLock.Priority.SHORT_WRITE);
+            // may hold downloads, parsing ops just to find out isn't worth it
+            case "batch" -> getCardLock(args, CardLock.Priority.LONG_WRITE);
+            default -> null;
+        };
+    }
+
+    private EndpointLock getCardLock(Map<String, String> args, CardLock.Priority priority)
+    {
+        int[] slot = new int[1];
+        int[] port = new int[1];
+
+        // handlers fail on the missing arg before touching any card
+        if (!tryGetArgAsInt(args, "slot", slot) || !tryGetArgAsInt(args, "port", port))
+            return null;
+
+        var lock = getCardLock(slot[0], port[0]);
+
+        return operation -> withLock(lock, priority, operation);
+    }
+
+    private CardLock getCardLock(int slot, int port)
+    {
+        return cardLocks.computeIfAbsent(cardKey(slot, port), _ -> new CardLock());
+    }
+
+    private static String cardKey(int slot, int port)
+    {
+        return slot + ":" + port;
+    }
+
+    private <T> T withLock(Mutex lock, Callable<T> operation) throws Exception
+    {
+        long lockStartedAt = System.nanoTime();
+        var context = getRequestContext();
+
+        try (var _ = span("lockWait"))
+        {
+            BuildersKt.runBlocking
+            (
+                EmptyCoroutineContext.INSTANCE,
+                (scope, continuation) ->
+                {
+                    // a cancelled wait gives up without holding the lock
+                    if (context != null)
+                        context.setOnCancel(() -> JobKt.getJob(scope.getCoroutineContext()).cancel((CancellationException) null));
+
+                    return lock.lock(null, continuation);
+                }
+            );
+        }
+        catch (CancellationException ex)
+        {
+            throw new Exception(context == null || context.getCancelReason() == null ? "cancelled" : context.getCancelReason());
+        }
+        finally
+        {
+            if (context != null)
+                context.setOnCancel(null);
+        }
+
+        addPhase(Metrics.Phase.LOCK_WAIT, System.nanoTime() - lockStartedAt);
+
+        try
+        {
+            throwIfCancelled();
+
+            return operation.call();
+        }
+        finally
+        {
+            lock.unlock(null);
+        }
+    }
+
+    // reads go ahead of short writes and short writes ahead of downloads, see CardLock
+    private <T> T withLock(CardLock lock, CardLock.Priority priority, Callable<T> operation) throws Exception
+    {
+        long lockStartedAt = System.nanoTime();
+        var context = getRequestContext();
+
+        try (var _ = span("lockWait"))
+        {
+            var waiter = lock.enqueue(priority);
+
+            // a cancelled wait gives up without holding the lock
+            if (context != null)
+                context.setOnCancel(() -> lock.abandon(waiter));
+
+            if (!lock.await(waiter))
+                throw new Exception(context == null || context.getCancelReason() == null ? "cancelled" : context.getCancelReason());
+        }
+        finally
+        {
+            if (context != null)
+                context.setOnCancel(null);
+        }
+
+        addPhase(Metrics.Phase.LOCK_WAIT, System.nanoTime() - lockStartedAt);
+
+        try
+        {
+            throwIfCancelled();
+
+            return operation.call();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    // identical card reads share the one in flight, args that only shape the response are left out
+    private static String getCoalescingKey(String endpoint, Map<String, String> args)
+    {
+        if (!endpoint.equals("profiles") && !endpoint.equals("cards"))
+            return null;
+
+        var readArgs = new TreeMap<>(args);
+        readArgs.remove("json");
+        readArgs.remove("trace");
+        // each caller waits with its own deadline
+        readArgs.remove("timeoutMs");
+
+        return endpoint + readArgs;
+    }
+
+    private ResultCursor coalesce(String key, EndpointLock lock, Callable<ResultCursor> read) throws Exception
+    {
+        while (true)
+        {
+            var flight = new CompletableFuture<ResultCursor>();
+            var leader = inFlightReads.putIfAbsent(key, flight);
+
+            if (leader == null)
+                return leadRead(key, flight, lock, read);
+
+            var rows = followRead(leader);
+
+            // null when the leader gave up on its own deadline or cancel, which says nothing about the card
+            if (rows != null)
+                return rows;
+        }
+    }
+
+    private ResultCursor leadRead(String key, CompletableFuture<ResultCursor> flight, EndpointLock lock, Callable<ResultCursor> read) throws Exception
+    {
+        try
+        {
+            var rows = lock.withLock
+            (
+                () ->
+                {
+                    try
+                    {
+                        return read.call();
+                    }
+                    finally
+                    {
+                        // retired before the lock is released, a caller arriving once a write may have run starts a read of its own
+                        inFlightReads.remove(key, flight);
+                    }
+                }
+            );
+
+            flight.complete(rows);
+
+            return rows;
+        }
+        catch (Throwable ex)
+        {
+            var context = getRequestContext();
+
+            // followers must never be left waiting, nor fail with this request's timeout
+            inFlightReads.remove(key, flight);
+
+            if (context != null && context.getCancelReason() != null)
+                flight.cancel(false);
+            else
+                flight.completeExceptionally(ex);
+
+            throw ex;
+        }
+    }
+
+    // waits until the leader is done or this request is cancelled, whichever comes first
+    private ResultCursor followRead(CompletableFuture<ResultCursor> leader) throws Exception
+    {
+        long waitStartedAt = System.nanoTime();
+        var context = getRequestContext();
+        var cancelled = new CompletableFuture<Void>();
+
+        try (var _ = span("coalesced"))
+        {
+            if (context != null)
+                context.setOnCancel(() -> cancelled.complete(null));
+
+            CompletableFuture.anyOf(leader, cancelled)
+                .exceptionally(_ -> null)
+                .join();
+
+            throwIfCancelled();
+
+            if (leader.isCancelled())
+                return null;
+
+            // each caller gets its own cursor position over the shared rows
+            return leader.get().view();
+        }
+        catch (ExecutionException ex)
+        {
+            throw ex.getCause() instanceof Exception cause ? cause : ex;
+        }
+        finally
+        {
+            if (context != null)
+                context.setOnCancel(null);
+
+            addPhase(Metrics.Phase.COALESCED, System.nanoTime() - waitStartedAt);
+        }
+    }
+
+    // endregion
+
+    // region Deadline Helpers
+
+    // endpoints that wait on a lock, the others never block, flushNotifications takes each card lock itself
+    private static final List<String> DEADLINE_ENDPOINTS = List.of
+    (
+        "preferences",
+        "setPreference",
+        "cards",
+        "profiles",
+        "downloadProfile",
+        "deleteProfile",
+        "enableProfile",
+        "setProfileNickname",
+        "batch",
+        "flushNotifications"
+    );
+
+    // reads only, a write that timed out may still land and callers would have to check
+    private static final Map<String, Long> DEFAULT_TIMEOUTS = Map.of
+    (
+        "cards", 30_000L,
+        "profiles", 30_000L
+    );
+
+    // a download that cancel can reach, id is null for synchronous downloadProfile requests
+    private record TrackedDownload(String id, int slot, int port, RequestContext context) { }
+
+    private long getTimeoutMs(String endpoint, Map<String, String> args) throws Exception
+    {
+        int[] timeoutMs = new int[1];
+
+        if (!args.containsKey("timeoutMs"))
+            return endpointTimeouts.getOrDefault(endpoint, 0L);
+
+        if (!tryGetArgAsInt(args, "timeoutMs", timeoutMs) || timeoutMs[0] < 0)
+            throw new Exception("invalid_arg_timeoutMs");
+
+        return timeoutMs[0];
+    }
+
+    // the caller stops waiting at the deadline, a card call already under way can't be interrupted and releases the lock when it returns
+    private ResultCursor withDeadline(RequestContext context, long timeoutMs, Callable<ResultCursor> operation) throws Exception
+    {
+        var future = requestExecutor.submit(() ->
+        {
+            var threadContext = bindContext(context);
+
+            try
+            {
+                return operation.call();
+            }
+            finally
+            {
+                bindContext(threadContext);
+            }
+        });
+
+        try
+        {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException ex)
+        {
+            // gives up the lock wait, or stops before the next card call unless a write has started
+            context.cancel("timeout");
+
+            throw new Exception("timeout");
+        }
+        catch (ExecutionException ex)
+        {
+            throw ex.getCause() instanceof Exception cause ? cause : ex;
+        }
+    }
+
+    private <T> T withTrackedDownload(String id, Map<String, String> args, Callable<T> operation) throws Exception
+    {
+        int[] slot = new int[1];
+        int[] port = new int[1];
+        var context = getRequestContext();
+
+        // the handler reports the missing arg
+        if (context == null || !tryGetArgAsInt(args, "slot", slot) || !tryGetArgAsInt(args, "port", port))
+            return operation.call();
+
+        String key = id != null ? id : UUID.randomUUID().toString();
+        downloadsInFlight.put(key, new TrackedDownload(id, slot[0], port[0], context));
+
+        try
+        {
+            return operation.call();
+        }
+        finally
+        {
+            downloadsInFlight.remove(key);
+        }
+    }
+
+    private static boolean isCancelTarget(boolean byId, String id, int slot, int port, String targetId, int targetSlot, int targetPort)
+    {
+        return byId ? id.equals(targetId) : slot == targetSlot && port == targetPort;
+    }
+
+    private RequestContext getRequestContext()
+    {
+        return requestContext.get();
+    }
+
+    // carries a request over to the thread its work runs on, returns what the thread had
+    private RequestContext bindContext(RequestContext context)
+    {
+        var previous = requestContext.get();
+
+        if (context == null)
+            requestContext.remove();
+        else
+            requestContext.set(context);
+
+        return previous;
+    }
+
+    // adds to the request running on this thread, if any
+    private void addPhase(Metrics.Phase phase, long nanos)
+    {
+        var context = requestContext.get();
+
+        if (context != null)
+            metrics.addPhase(context.getMetrics(), phase, nanos);
+    }
+
+    private void throwIfCancelled() throws Exception
+    {
+        var context = getRequestContext();
+        var reason = context == null ? null : context.getCancelReason();
+
+        if (reason != null)
+            throw new Exception(reason);
+    }
+
+    // past this point the request writes to the card and can no longer be cancelled
+    private void beginCardWrite() throws Exception
+    {
+        var context = getRequestContext();
+
+        if (context != null && !context.commit())
+            throw new Exception(context.getCancelReason());
+    }
+
+    // endregion
+
+    // region LPA Helpers
+
+    private EuiccChannel findEuiccChannel(DefaultEuiccChannelManager euiccChannelManager, int slot, int port) throws Exception
+    {
+        return (EuiccChannel) BuildersKt.runBlocking
+        (
+            EmptyCoroutineContext.INSTANCE,
+            (_, continuation) ->
+            {
+                try
+                {
+                    return findEuiccChannelByPortMethod.invoke(euiccChannelManager, slot, port, continuation);
+                }
+                catch (Exception ex)
+                {
+                    return null;
+                }
+            }
+        );
+    }
+
+    private static final class ChannelStats
+    {
+        final int slot;
+        final int port;
+        final LongAdder acquired = new LongAdder();
+        final LongAdder reused = new LongAdder();
+
+        ChannelStats(int slot, int port)
+        {
+            this.slot = slot;
+            this.port = port;
+        }
+    }
+
+    private ChannelStats getChannelStats(int slot, int port)
+    {
+        return channelStats.computeIfAbsent(cardKey(slot, port), _ -> new ChannelStats(slot, port));
+    }
+
+    // channel held by the current thread, reused by every withEuiccChannel on the same card
+    private record ChannelSession(int slot, int port, EuiccChannel channel) { }
+
+    private <T> T withChannelSession(int slot, int port, Callable<T> operation) throws Exception
+    {
+        var outerSession = channelSession.get();
+
+        if (outerSession != null && outerSession.slot() == slot && outerSession.port() == port)
+            return operation.call();
+
+        Exception[] failure = new Exception[1];
+
+        T result = acquireEuiccChannel
+        (
+            slot,
+            port,
+            (channel, _) ->
+            {
+                // the channel manager may run this on another thread
+                var threadSession = channelSession.get();
+                channelSession.set(new ChannelSession(slot, port, channel));
+
+                try
+                {
+                    return operation.call();
+                }
+                catch (Exception ex)
+                {
+                    failure[0] = ex;
+                    return null;
+                }
+                finally
+                {
+                    channelSession.set(threadSession);
+                }
+            },
+            false
+        );
+
+        if (failure[0] != null)
+            throw failure[0];
+
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T withEuiccChannel(int slot, int port, Function2<EuiccChannel, Continuation<? super T>, ?> operation) throws Exception
+    {
+        var session = channelSession.get();
+
+        // operations here are plain lambdas that never suspend, so no coroutine is needed to run them
+        if (session != null && session.slot() == slot && session.port() == port)
+        {
+            throwIfCancelled();
+
+            getChannelStats(slot, port).reused.increment();
+
+            long operationStartedAt = System.nanoTime();
+
+            try (var _ = span("withEuiccChannel"))
+            {
+                return (T) operation.invoke(session.channel(), null);
+            }
+            finally
+            {
+                addPhase(Metrics.Phase.LPA, System.nanoTime() - operationStartedAt);
+            }
+        }
+
+        return acquireEuiccChannel(slot, port, operation, true);
+    }
+
+    // session openers don't time their operation, the calls nested in it time themselves
+    @SuppressWarnings("unchecked")
+    private <T> T acquireEuiccChannel(int slot, int port, Function2<EuiccChannel, Continuation<? super T>, ?> operation, boolean timeOperation) throws Exception
+    {
+        throwIfCancelled();
+
+        getChannelStats(slot, port).acquired.increment();
+
+        var euiccChannelManager = appContainer.getEuiccChannelManager();
+        var context = getRequestContext();
+        long acquireStartedAt = System.nanoTime();
+
+        var channelSpan = span(timeOperation ? "withEuiccChannel" : "channelSession");
+        var acquireSpan = span("acquire");
+
+        Function2<EuiccChannel, Continuation<? super T>, ?> timedOperation = (channel, continuation) ->
+        {
+            var threadContext = bindContext(context);
+            long operationStartedAt = System.nanoTime();
+
+            acquireSpan.close();
+
+            addPhase(Metrics.Phase.CHANNEL, operationStartedAt - acquireStartedAt);
+
+            try
+            {
+                return operation.invoke(channel, continuation);
+            }
+            finally
+            {
+                if (timeOperation)
+                    addPhase(Metrics.Phase.LPA, System.nanoTime() - operationStartedAt);
+
+                bindContext(threadContext);
+            }
+        };
+
+        try
+        {
+            return (T) BuildersKt.runBlocking
+            (
+                EmptyCoroutineContext.INSTANCE,
+                (_, continuation) -> euiccChannelManager.withEuiccChannel(slot, port, timedOperation, continuation)
+            );
+        }
+        finally
+        {
+            // still open if the channel couldn't be acquired
+            acquireSpan.close();
+            channelSpan.close();
+        }
+    }
+
+    // with a trace, every LPA call becomes a span
+    private LocalProfileAssistant lpa(EuiccChannel channel)
+    {
+        var lpa = channel.getLpa();
+        var trace = getTrace();
+
+        if (trace == null)
+            return lpa;
+
+        return (LocalProfileAssistant) Proxy.newProxyInstance
+        (
+            LocalProfileAssistant.class.getClassLoader(),
+            new Class<?>[] { LocalProfileAssistant.class },
+            (_, method, methodArgs) ->
+            {
+                try (var _ = trace.begin("lpa." + method.getName()))
+                {
+                    return method.invoke(lpa, methodArgs);
+                }
+                catch (InvocationTargetException ex)
+                {
+                    throw ex.getCause();
+                }
+            }
+        );
+    }
+
+    private <T> T withEuiccChannel(Map<String, String> args, Function2<EuiccChannel, Continuation<? super T>, ?> operation) throws Exception
+    {
+        var slot = new int[1];
+        var port = new int[1];
+        requireSlotAndPort(args, slot, port);
+
+        return withEuiccChannel(slot[0], port[0], operation);
+    }
+
+    private List<LocalProfileInfo> getProfiles(Map<String, String> args) throws Exception
+    {
+        return filterProfiles(loadProfiles(args).profiles());
+    }
+
+    private List<LocalProfileInfo> getProfiles(Map<String, String> args, boolean fresh) throws Exception
+    {
+        return filterProfiles(loadProfiles(args, fresh).profiles());
+    }
+
+    private CachedProfiles loadProfiles(Map<String, String> args) throws Exception
+    {
+        boolean[] fresh = new boolean[1];
+        tryGetArgAsBoolean(args, "fresh", fresh);
+
+        return loadProfiles(args, fresh[0]);
+    }
+
+    // unfiltered, as cached
+    private CachedProfiles loadProfiles(Map<String, String> args, boolean fresh) throws Exception
+    {
+        int[] slot = new int[1];
+        int[] port = new int[1];
+        requireSlotAndPort(args, slot, port);
+
+        var cachedProfiles = fresh ? null : getCachedProfiles(slot[0], port[0]);
+
+        if (cachedProfiles == null && !fresh)
+            cachedProfiles = getRestoredProfiles(slot[0], port[0]);
+
+        if (cachedProfiles == null)
+        {
+            cachedProfiles = withEuiccChannel
+            (
+                args,
+                (channel, _) -> new CachedProfiles
+                (
+                    lpa(channel).getEID(),
+                    lpa(channel).getProfiles(),
+                    System.nanoTime(),
+                    false
+                )
+            );
+
+            profileCache.put(cardKey(slot[0], port[0]), cachedProfiles);
+            updateProfilesVersion(slot[0], port[0], cachedProfiles);
+
+            restoredProfiles.remove(cardKey(slot[0], port[0]));
+            cardStore.putProfiles(cachedProfiles.eid(), cachedProfiles.profiles());
+        }
+
+        return cachedProfiles;
+    }
+
+    private List<LocalProfileInfo> filterProfiles(List<LocalProfileInfo> profiles) throws Exception
+    {
+        boolean filterProfileList = getPreference("filterProfileList");
+
+        if (filterProfileList)
+            return LPAUtilsKt.getOperational(profiles);
+
+        return profiles;
+    }
+
+    private LocalProfileInfo downloadProfile(Map<String, String> args, String address, String matchingId, String confirmationCode, String imei, DownloadJob job) throws Exception
+    {
+        String[] callbackUrlArg = new String[1];
+        URL callbackUrl = null;
+
+        if (tryGetArgAsString(args, "callbackUrl", callbackUrlArg))
+            callbackUrl = new URI(callbackUrlArg[0]).toURL();
+
+        // orders the callbacks of this download
+        final URL callbackUrlFinal = callbackUrl;
+        final String callbackKey = job != null ? job.getId() : UUID.randomUUID().toString();
+
+        var profilesBefore = getProfiles(args);
+
+        var iccidsBefore = profilesBefore.stream()
+            .map(LocalProfileInfo::getIccid)
+            .collect(Collectors.toSet());
+
+        beginCardWrite();
+
+        try
+        {
+            withEuiccChannel
+            (
+                args,
+                (channel, _) ->
+                {
+                    lpa(channel).downloadProfile
+                    (
+                        address,
+                        matchingId,
+                        imei,
+                        confirmationCode,
+                        new ProfileDownloadCallback()
+                        {
+                            @Override
+                            public void onStateUpdate(ProfileDownloadCallback.DownloadState state)
+                            {
+                                if (job != null)
+                                    job.update(state);
+
+                                if (callbackUrlFinal == null || state.getProgress() == 0)
+                                    return;
+
+                                var data = new LinkedHashMap<String, Object>()
+                                {{
+                                    put("timestamp", Instant.now().getEpochSecond());
+                                    put("state", state.name());
+                                    put("progress", state.getProgress());
+                                    put("address", address);
+                                    put("matchingId", matchingId);
+                                    put("confirmationCode", confirmationCode);
+                                    put("imei", imei);
+                                }};
+
+                                callbackDispatcher.post(callbackKey, callbackUrlFinal, data, true);
+                            }
+                        }
+                    );
+
+                    return null;
+                }
+            );
+        }
+        finally
+        {
+            invalidateProfiles(args);
+        }
+
+        var profilesAfter = getProfiles(args, true);
+
+        var downloadedProfile = profilesAfter.stream()
+            .filter(p -> !iccidsBefore.contains(p.getIccid()))
+            .findFirst()
+            .orElse(null);
+
+        if (downloadedProfile != null)
+            processNotification(args, downloadedProfile.getIccid(), LocalProfileNotification.Operation.Install);
+
+        return downloadedProfile;
+    }
+
+    // queued for the notification worker, so the card operation returns without waiting on the SM-DP+
+    private void processNotification(Map<String, String> args, String iccid, LocalProfileNotification.Operation operation)
+    {
+        try (var _ = span("notification"))
+        {
+            var preferenceName = switch (operation)
+            {
+                case Install -> "notificationsDownload";
+                case Delete -> "notificationsDelete";
+                case Enable, Disable -> "notificationsEnableDisable";
+            };
+
+            if (!getPreference(preferenceName))
+                return;
+
+            int[] slot = new int[1];
+            int[] port = new int[1];
+            requireSlotAndPort(args, slot, port);
+
+            synchronized (pendingNotifications)
+            {
+                pendingNotifications
+                    .computeIfAbsent(cardKey(slot[0], port[0]), _ -> new ArrayList<>())
+                    .add(new PendingNotification(slot[0], port[0], iccid, operation));
+            }
+
+            scheduleNotificationFlush(slot[0], port[0], 0);
+        }
+        catch (Exception ex)
+        {
+            // ignored
+        }
+    }
+
+    // endregion
+
+    // region Notification Helpers
+
+    private static final int MAX_NOTIFICATION_ATTEMPTS = 5;
+    private static final long NOTIFICATION_RETRY_BASE_DELAY_MS = 5_000;
+
+    private static final class PendingNotification
+    {
+        final int slot;
+        final int port;
+        final String iccid;
+        final LocalProfileNotification.Operation operation;
+        final long enqueuedAt = Instant.now().getEpochSecond();
+        int attempts;
+        String error;
+
+        PendingNotification(int slot, int port, String iccid, LocalProfileNotification.Operation operation)
+        {
+            this.slot = slot;
+            this.port = port;
+            this.iccid = iccid;
+            this.operation = operation;
+        }
+    }
+
+    private record NotificationFlush(int slot, int port, int sent, int failed, int pending) { }
+
+    private void scheduleNotificationFlush(int slot, int port, long delayMs)
+    {
+        notificationExecutor.schedule
+        (
+            () ->
+            {
+                var request = metrics.begin("notificationFlush");
+                var outerContext = bindContext(new RequestContext(request, null));
+                String error = null;
+
+                try
+                {
+                    flushNotifications(slot, port);
+                }
+                catch (Exception ex)
+                {
+                    // retried by the next flush
+                    error = ex.getMessage();
+                }
+
+                metrics.end(request, error);
+                bindContext(outerContext);
+            },
+            delayMs,
+            TimeUnit.MILLISECONDS
+        );
+    }
+
+    // sends everything queued for the card in one channel session, failures go back to the front of the queue
+    private NotificationFlush flushNotifications(int slot, int port) throws Exception
+    {
+        try (var _ = span("notificationFlush"))
+        {
+            return withLock
+            (
+                getCardLock(slot, port),
+                CardLock.Priority.LONG_WRITE,
+                () ->
+                {
+                    List<PendingNotification> batch;
+
+                    synchronized (pendingNotifications)
+                    {
+                        batch = pendingNotifications.remove(cardKey(slot, port));
+                    }
+
+                    if (batch == null)
+                        return new NotificationFlush(slot, port, 0, 0, 0);
+
+                    var retry = new ArrayList<PendingNotification>();
+                    int[] sent = new int[1];
+
+                    try
+                    {
+                        withChannelSession
+                        (
+                            slot,
+                            port,
+                            () ->
+                            {
+                                @SuppressWarnings("unchecked")
+                                var notifications = (List<LocalProfileNotification>) withEuiccChannel
+                                (
+                                    slot,
+                                    port,
+                                    (channel, _) -> lpa(channel).getNotifications()
+                                );
+
+                                // the same iccid and operation may be queued more than once, each takes its own notification
+                                var claimed = new HashSet<Long>();
+
+                                for (PendingNotification pending : batch)
+                                {
+                                    var notification = notifications.stream()
+                                        .filter(n -> n.getIccid().equals(pending.iccid) && n.getProfileManagementOperation() == pending.operation)
+                                        .filter(n -> !claimed.contains(n.getSeqNumber()))
+                                        .min(Comparator.comparingLong(LocalProfileNotification::getSeqNumber)) // oldest, pendings are in queue order
+                                        .orElse(null);
+
+                                    if (notification == null)
+                                        continue;
+
+                                    claimed.add(notification.getSeqNumber());
+
+                                    try
+                                    {
+                                        withEuiccChannel
+                                        (
+                                            slot,
+                                            port,
+                                            (channel, _) ->
+                                            {
+                                                lpa(channel).handleNotification(notification);
+                                                lpa(channel).deleteNotification(notification.getSeqNumber());
+                                                return null;
+                                            }
+                                        );
+
+                                        sent[0]++;
+                                    }
+                                    catch (Exception ex)
+                                    {
+                                        pending.error = ex.getMessage();
+                                        retry.add(pending);
+                                    }
+                                }
+
+                                return null;
+                            }
+                        );
+                    }
+                    catch (Exception ex)
+                    {
+                        for (PendingNotification pending : batch)
+                            pending.error = ex.getMessage();
+
+                        retry.clear();
+                        retry.addAll(batch);
+                    }
+
+                    int retryCount = retry.size();
+                    retry.removeIf(pending -> ++pending.attempts >= MAX_NOTIFICATION_ATTEMPTS);
+                    int failed = retryCount - retry.size();
+
+                    int pendingCount;
+
+                    synchronized (pendingNotifications)
+                    {
+                        if (!retry.isEmpty())
+                        {
+                            var queue = pendingNotifications.computeIfAbsent(cardKey(slot, port), _ -> new ArrayList<>());
+                            queue.addAll(0, retry);
+                        }
+
+                        var queue = pendingNotifications.get(cardKey(slot, port));
+                        pendingCount = queue == null ? 0 : queue.size();
+                    }
+
+                    if (!retry.isEmpty())
+                    {
+                        int attempts = retry.stream().mapToInt(pending -> pending.attempts).min().orElse(1);
+                        scheduleNotificationFlush(slot, port, NOTIFICATION_RETRY_BASE_DELAY_MS << (attempts - 1));
+                    }
+
+                    return new NotificationFlush(slot, port, sent[0], failed, pendingCount);
+                }
+            );
+        }
+    }
+
+    private List<PendingNotification> getPendingNotifications()
+    {
+        synchronized (pendingNotifications)
+        {
+            return pendingNotifications.values().stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingLong(pending -> pending.enqueuedAt))
+                .collect(Collectors.toList());
+        }
+    }
+
+    // endregion
+
+    // region Topology Helpers
+
+    // every port of every card, eid is null for non-removable cards and ports without an eUICC
+    private record CardInfo(int slot, int port, String eid, boolean removable) { }
+
+    // caller holds the topology lock
+    private List<CardInfo> getCardTopology(boolean fresh) throws Exception
+    {
+        var topology = cardTopology;
+
+        if (topology != null && !fresh)
+            return topology;
+
+        // the first scan after a restart comes from disk, a background refresh scans the cards
+        topology = fresh ? null : takeRestoredTopology();
+
+        boolean restored = topology != null;
+
+        if (topology == null)
+        {
+            restoredTopology.set(null);
+
+            topology = buildCardTopology();
+            cardStore.putCards(toStoredCards(topology));
+        }
+
+        cardTopology = topology;
+        cardTopologyRestored = restored;
+
+        // rebuilt on every SIM state broadcast, only a different topology is a new version
+        if (!topology.equals(versionedTopology))
+        {
+            versionedTopology = topology;
+            topologyGeneration = versionGeneration.incrementAndGet();
+        }
+
+        return topology;
+    }
+
+    private List<CardInfo> buildCardTopology() throws Exception
+    {
+        if (getUiccCardsMethod == null || findEuiccChannelByPortMethod == null)
+            throw new Exception("unsupported_channel_manager");
+
+        var euiccChannelManager = (DefaultEuiccChannelManager) appContainer.getEuiccChannelManager();
+
+        @SuppressWarnings("unchecked")
+        var cards = (List<UiccCardInfoCompat>) getUiccCardsMethod.invoke(euiccChannelManager);
+
+        var topology = new ArrayList<CardInfo>();
+
+        for (UiccCardInfoCompat card : cards)
+        {
+            for (UiccPortInfoCompat cardPort : card.getPorts())
+            {
+                int slot = card.getPhysicalSlotIndex();
+                int port = cardPort.getPortIndex();
+
+                if (!card.isRemovable())
+                {
+                    topology.add(new CardInfo(slot, port, null, false));
+                    continue;
+                }
+
+                var cardLock = getCardLock(slot, port);
+                String eid = getBusyCardEid(cardLock, slot, port);
+
+                if (eid != null)
+                {
+                    topology.add(new CardInfo(slot, port, eid, true));
+                    continue;
+                }
+
+                eid = withLock
+                (
+                    cardLock,
+                    CardLock.Priority.READ,
+                    () ->
+                    {
+                        var euiccChannel = findEuiccChannel(euiccChannelManager, slot, port);
+
+                        if (euiccChannel == null)
+                            return null;
+
+                        return withEuiccChannel
+                        (
+                            slot,
+                            port,
+                            (channel, _) -> lpa(channel).getEID()
+                        );
+                    }
+                );
+
+                topology.add(new CardInfo(slot, port, eid, true));
+            }
+        }
+
+        // profile lists of cards that went away or were swapped are no longer valid
+        var eids = topology.stream()
+            .filter(c -> c.eid() != null)
+            .collect(Collectors.toMap(c -> cardKey(c.slot(), c.port()), CardInfo::eid));
+
+        profileCache.entrySet().removeIf(e -> !e.getValue().eid().equals(eids.get(e.getKey())));
+        profileSnapshots.entrySet().removeIf(e -> !e.getValue().loaded().eid().equals(eids.get(e.getKey())));
+
+        return Collections.unmodifiableList(topology);
+    }
+
+    // a card busy with a write is still the card it was, so the last topology's eid stands in for reading it
+    private String getBusyCardEid(CardLock cardLock, int slot, int port)
+    {
+        if (versionedTopology == null || !cardLock.isWriteHeld())
+            return null;
+
+        return versionedTopology.stream()
+            .filter(c -> c.slot() == slot && c.port() == port)
+            .map(CardInfo::eid)
+            .findFirst()
+            .orElse(null);
+    }
+
+    private String getKnownEid(int slot, int port)
+    {
+        var topology = cardTopology;
+
+        if (topology == null)
+            return null;
+
+        return topology.stream()
+            .filter(c -> c.slot() == slot && c.port() == port)
+            .map(CardInfo::eid)
+            .findFirst()
+            .orElse(null);
+    }
+
+    private void invalidateCardTopology()
+    {
+        cardTopology = null;
+        cardTopologyRestored = false;
+        profileCache.clear();
+        restoredTopology.set(null);
+        restoredProfiles.clear();
+
+        notifyChange(CARDS_URI);
+        notifyChange(PROFILES_URI);
+    }
+
+    // endregion
+
+    // region Observer Helpers
+
+    // observers of PROFILES_URI with notifyForDescendants see every card
+    private static final Uri CARDS_URI = Uri.parse("content://lpa/cards");
+    private static final Uri PROFILES_URI = Uri.parse("content://lpa/profiles");
+    private static final Uri PREFERENCES_URI = Uri.parse("content://lpa/preferences");
+
+    private void notifyProfilesChanged(int slot, int port)
+    {
+        notifyChange(Uri.withAppendedPath(PROFILES_URI, slot + "/" + port));
+    }
+
+    private void notifyChange(Uri uri)
+    {
+        getContext().getContentResolver().notifyChange(uri, null);
+    }
+
+    // endregion
+
+    // region Version Helpers
+
+    // loaded is what the card returned for this generation, null after a mutation until the next read
+    private record ProfilesVersion(long generation, CachedProfiles loaded) { }
+
+    private String getVersion(long generation)
+    {
+        return versionNonce + "-" + generation;
+    }
+
+    private String getProfilesVersion(Map<String, String> args, long preferencesGeneration) throws Exception
+    {
+        int[] slot = new int[1];
+        int[] port = new int[1];
+        requireSlotAndPort(args, slot, port);
+
+        var profilesVersion = profilesVersions.get(cardKey(slot[0], port[0]));
+        long generation = profilesVersion == null ? 0 : profilesVersion.generation();
+
+        // generations are handed out from one counter, so the newest of the two moves on either change
+        return getVersion(Math.max(generation, preferencesGeneration));
+    }
+
+    // reads that find the card as it was keep the version, also when the cache had expired
+    private void updateProfilesVersion(int slot, int port, CachedProfiles loaded)
+    {
+        var profilesVersion = profilesVersions.compute
+        (
+            cardKey(slot, port),
+            (_, current) ->
+            {
+                if (current == null)
+                    return new ProfilesVersion(versionGeneration.incrementAndGet(), loaded);
+
+                if (current.loaded() == null)
+                    return new ProfilesVersion(current.generation(), loaded);
+
+                boolean unchanged = current.loaded().eid().equals(loaded.eid())
+                    && current.loaded().profiles().equals(loaded.profiles());
+
+                return unchanged ? current : new ProfilesVersion(versionGeneration.incrementAndGet(), loaded);
+            }
+        );
+
+        // callers hold the card lock, so snapshots are stored in the order they were read
+        profileSnapshots.put(cardKey(slot, port), profilesVersion);
+    }
+
+    private void bumpProfilesVersion(int slot, int port)
+    {
+        profilesVersions.put(cardKey(slot, port), new ProfilesVersion(versionGeneration.incrementAndGet(), null));
+
+        // observers re-read as soon as they're told of the change, while the write still holds the card, so they wait for the new list
+        profileSnapshots.remove(cardKey(slot, port));
+    }
+
+    private static boolean isNotModified(Map<String, String> args, String version)
+    {
+        return version.equals(args.get("ifNoneMatch"));
+    }
+
+    // endregion
+
+    // region Cache Helpers
+
+    private static final long PROFILE_CACHE_TTL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    // unfiltered, so filterProfileList keeps applying on every read, restored until the card's list has been read in this process
+    private record CachedProfiles(String eid, List<LocalProfileInfo> profiles, long loadedAt, boolean restored) { }
+
+    private CachedProfiles getCachedProfiles(int slot, int port)
+    {
+        var cachedProfiles = profileCache.get(cardKey(slot, port));
+
+        if (cachedProfiles == null)
+            return null;
+
+        // a card swapped in since the list was read, as far as the topology knows
+        var knownEid = getKnownEid(slot, port);
+
+        if (knownEid != null && !knownEid.equals(cachedProfiles.eid()))
+        {
+            profileCache.remove(cardKey(slot, port), cachedProfiles);
+            return null;
+        }
+
+        if (System.nanoTime() - cachedProfiles.loadedAt() > PROFILE_CACHE_TTL_NANOS)
+        {
+            profileCache.remove(cardKey(slot, port), cachedProfiles);
+            return null;
+        }
+
+        return cachedProfiles;
+    }
+
+    private void invalidateProfiles(Map<String, String> args) throws Exception
+    {
+        int[] slot = new int[1];
+        int[] port = new int[1];
+        requireSlotAndPort(args, slot, port);
+
+        var cachedProfiles = profileCache.remove(cardKey(slot[0], port[0]));
+        forgetStoredProfiles(slot[0], port[0], cachedProfiles);
+
+        bumpProfilesVersion(slot[0], port[0]);
+        notifyProfilesChanged(slot[0], port[0]);
+    }
+
+    // the list as last read while a write holds the card, null when the read has to wait for it
+    private ResultCursor getStaleProfiles(Map<String, String> args) throws Exception
+    {
+        int[] slot = new int[1];
+        int[] port = new int[1];
+        boolean[] fresh = new boolean[1];
+
+        if (tryGetArgAsBoolean(args, "fresh", fresh) && fresh[0])
+            return null;
+
+        if (!tryGetArgAsInt(args, "slot", slot) || !tryGetArgAsInt(args, "port", port))
+            return null;
+
+        var snapshot = profileSnapshots.get(cardKey(slot[0], port[0]));
+
+        if (snapshot == null || !getCardLock(slot[0], port[0]).isWriteHeld())
+            return null;
+
+        var knownEid = getKnownEid(slot[0], port[0]);
+
+        if (knownEid != null && !knownEid.equals(snapshot.loaded().eid()))
+            return null;
+
+        try (var _ = span("staleSnapshot"))
+        {
+            long preferencesGeneration = this.preferencesGeneration;
+
+            var profiles = filterProfiles(snapshot.loaded().profiles());
+            String version = getVersion(Math.max(snapshot.generation(), preferencesGeneration));
+
+            staleReads.increment();
+
+            if (isNotModified(args, version))
+                return notModified(version, true);
+
+            return profiles(profiles, version, true);
+        }
+    }
+
+    private void removeCachedProfile(Map<String, String> args, String iccid) throws Exception
+    {
+        int[] slot = new int[1];
+        int[] port = new int[1];
+        requireSlotAndPort(args, slot, port);
+
+        var updatedProfiles = profileCache.computeIfPresent
+        (
+            cardKey(slot[0], port[0]),
+            (_, cachedProfiles) -> new CachedProfiles
+            (
+                cachedProfiles.eid(),
+                cachedProfiles.profiles().stream()
+                    .filter(p -> !p.getIccid().equals(iccid))
+                    .collect(Collectors.toList()),
+                cachedProfiles.loadedAt(),
+                cachedProfiles.restored()
+            )
+        );
+
+        if (updatedProfiles != null)
+            cardStore.putProfiles(updatedProfiles.eid(), updatedProfiles.profiles());
+        else
+            forgetStoredProfiles(slot[0], port[0], null);
+
+        bumpProfilesVersion(slot[0], port[0]);
+        notifyProfilesChanged(slot[0], port[0]);
+    }
+
+    // endregion
+
+    // region Job Helpers
+
+    private static final int MAX_DOWNLOAD_JOBS = 100;
+
+    private void addDownloadJob(DownloadJob job)
+    {
+        downloadJobs.put(job.getId(), job);
+
+        if (downloadJobs.size() <= MAX_DOWNLOAD_JOBS)
+            return;
+
+        // forget the oldest finished jobs first, running ones are never evicted
+        downloadJobs.values().stream()
+            .filter(DownloadJob::isFinished)
+            .sorted(Comparator.comparingLong(DownloadJob::getUpdatedAt))
+            .limit(downloadJobs.size() - MAX_DOWNLOAD_JOBS)
+            .forEach(j -> downloadJobs.remove(j.getId()));
+    }
+
+    // endregion
+
+    // region Provisioning Helpers
+
+    private static final int MAX_PROVISIONING_TASKS = 1000;
+    private static final int DEFAULT_SMDP_CONCURRENCY = 2;
+
+    // highest priority first, then in submission order
+    private static final Comparator<ProvisioningTask> PROVISIONING_ORDER = Comparator
+        .comparingInt(ProvisioningTask::getPriority).reversed()
+        .thenComparingLong(ProvisioningTask::getSequence);
+
+    private List<ProvisioningTask> getProvisioningTasks(Map<String, String> args)
+    {
+        String[] submission = new String[1];
+        boolean filter = tryGetArgAsString(args, "submission", submission);
+
+        synchronized (provisioningTasks)
+        {
+            return provisioningTasks.values().stream()
+                .filter(t -> !filter || t.getSubmission().equals(submission[0]))
+                .collect(Collectors.toList());
+        }
+    }
+
+    // starts every queued task whose card is idle and whose SM-DP+ is below the task's cap, one task per card at a time
+    private void scheduleProvisioning()
+    {
+        var started = new ArrayList<ProvisioningTask>();
+
+        synchronized (provisioningTasks)
+        {
+            var queued = provisioningTasks.values().stream()
+                .filter(t -> t.getState() == ProvisioningTask.State.QUEUED)
+                .sorted(PROVISIONING_ORDER)
+                .collect(Collectors.toList());
+
+            for (ProvisioningTask task : queued)
+            {
+                String card = cardKey(task.getSlot(), task.getPort());
+                String smdpAddress = task.getSmdpAddress();
+
+                if (provisioningCards.contains(card))
+                    continue;
+
+                if (smdpDownloads.getOrDefault(smdpAddress, 0) >= task.getMaxPerSmdp())
+                    continue;
+
+                provisioningCards.add(card);
+                provisioningDownloads.add(task.getId());
+                smdpDownloads.merge(smdpAddress, 1, Integer::sum);
+
+                task.running();
+                started.add(task);
+            }
+        }
+
+        for (ProvisioningTask task : started)
+            downloadExecutor.execute(() -> runProvisioningTask(task));
+    }
+
+    private void runProvisioningTask(ProvisioningTask task)
+    {
+        var request = metrics.begin("provisionTask");
+        var context = new RequestContext(request, null);
+        var outerContext = bindContext(context);
+
+        downloadsInFlight.put(task.getId(), new TrackedDownload(task.getId(), task.getSlot(), task.getPort(), context));
+
+        try
+        {
+            withLock
+            (
+                getCardLock(task.getSlot(), task.getPort()),
+                CardLock.Priority.LONG_WRITE,
+                () -> withChannelSession
+                (
+                    task.getSlot(),
+                    task.getPort(),
+                    () ->
+                    {
+                        provision(task);
+                        return null;
+                    }
+                )
+            );
+
+            task.completed();
+        }
+        catch (Exception ex)
+        {
+            task.failed(ex.getMessage());
+        }
+        finally
+        {
+            downloadsInFlight.remove(task.getId());
+            releaseSmdpSlot(task);
+
+            synchronized (provisioningTasks)
+            {
+                provisioningCards.remove(cardKey(task.getSlot(), task.getPort()));
+            }
+        }
+
+        metrics.end(request, task.getError());
+        bindContext(outerContext);
+
+        scheduleProvisioning();
+    }
+
+    // download, then optionally nickname and enable, on the card lock and one channel session
+    private void provision(ProvisioningTask task) throws Exception
+    {
+        var args = new LinkedHashMap<>(task.getArgs());
+
+        task.step(ProvisioningTask.Step.DOWNLOAD);
+
+        var downloaded = requireNoError(handleDownloadProfile(args));
+        int iccidIndex = downloaded.getColumnIndex("iccid");
+
+        if (downloaded.getCount() > 0 && iccidIndex >= 0)
+            task.downloaded(String.valueOf(downloaded.getValue(0, iccidIndex)));
+
+        // the SM-DP+ is done with this task, the next card may start downloading from it
+        releaseSmdpSlot(task);
+        scheduleProvisioning();
+
+        String[] nickname = new String[1];
+        boolean rename = tryGetArgAsString(args, "nickname", nickname);
+
+        if (!rename && !task.getEnable())
+            return;
+
+        if (task.getIccid() == null)
+            throw new Exception("downloaded_profile_not_found");
+
+        args.put("iccid", task.getIccid());
+
+        if (rename)
+        {
+            task.step(ProvisioningTask.Step.NICKNAME);
+            requireNoError(handleSetProfileNickname(args));
+        }
+
+        if (task.getEnable())
+        {
+            task.step(ProvisioningTask.Step.ENABLE);
+
+            var enabled = requireNoError(handleEnableProfile(args));
+
+            if (!Boolean.TRUE.equals(enabled.getValue(0, enabled.getColumnIndex("success"))))
+                throw new Exception("enable_failed");
+        }
+    }
+
+    private void releaseSmdpSlot(ProvisioningTask task)
+    {
+        synchronized (provisioningTasks)
+        {
+            if (provisioningDownloads.remove(task.getId()))
+                smdpDownloads.merge(task.getSmdpAddress(), -1, Integer::sum);
+        }
+    }
+
+    // guarded by provisioningTasks, running and queued tasks are never evicted
+    private void evictProvisioningTasks()
+    {
+        if (provisioningTasks.size() <= MAX_PROVISIONING_TASKS)
+            return;
+
+        provisioningTasks.values().stream()
+            .filter(ProvisioningTask::isFinished)
+            .sorted(Comparator.comparingLong(ProvisioningTask::getUpdatedAt))
+            .limit(provisioningTasks.size() - MAX_PROVISIONING_TASKS)
+            .collect(Collectors.toList())
+            .forEach(t -> provisioningTasks.remove(t.getId()));
+    }
+
+    // endregion
+
+    // region Preference Helpers
+
+    private List<String> invertedPreferences = List.of
+    (
+        "safeguardActiveProfile",
+        "filterProfileList"
+    );
+
+    // kept by the bridge in its own shared preferences, the app doesn't know them
+    private List<String> bridgePreferences = List.of
+    (
+        "warmUp"
+    );
+
+    private List<String> getPreferenceNames()
+    {
+        var names = new ArrayList<String>(List.of
+        (
+            "verboseLogging",
+            "safeguardActiveProfile",
+            "filterProfileList",
+            "ignoreTlsCertificate",
+            "notificationsDownload",
+            "notificationsDelete",
+            "notificationsEnableDisable"
+        ));
+
+        if (!(appContainer instanceof UnprivilegedAppContainer))
+            names.add(1, "forceUseTelephonyManager");
+
+        names.addAll(bridgePreferences);
+
+        return names;
+    }
+
+    private SharedPreferences getBridgePreferences()
+    {
+        return getContext().getSharedPreferences("lpa_bridge", Context.MODE_PRIVATE);
+    }
+
+    // keeps preferenceSnapshot in sync with the repository, including changes made from the app UI
+    private void subscribePreferences()
+    {
+        var scope = CoroutineScopeKt.CoroutineScope(Dispatchers.getIO());
+
+        for (String name : getPreferenceNames())
+        {
+            // only ever changed through setPreference
+            if (bridgePreferences.contains(name))
+                continue;
+
+            try
+            {
+                FlowKt.launchIn
+                (
+                    FlowKt.onEach
+                    (
+                        getPreferenceFlow(name),
+                        (enabled, _) ->
+                        {
+                            updatePreferenceSnapshot(name, invertedPreferences.contains(name) ? !enabled : enabled);
+                            return Unit.INSTANCE;
+                        }
+                    ),
+                    scope
+                );
+            }
+            catch (Exception ex)
+            {
+                // read on demand by getPreference
+            }
+        }
+    }
+
+    private PreferenceFlowWrapper<Boolean> getPreferenceFlow(String name) throws Exception
+    {
+        var preferenceRepository = PreferenceUtilsKt.getPreferenceRepository(getContext());
+
+        return switch (name)
+        {
+            case "verboseLogging" -> preferenceRepository.getVerboseLoggingFlow(); // not used here
+            case "forceUseTelephonyManager" -> preferenceRepository.getForceUseTMAPIFlow(); // only used by PrivilegedAppContainer
             case "safeguardActiveProfile" -> preferenceRepository.getDisableSafeguardFlow(); // implemented
             case "filterProfileList" -> preferenceRepository.getUnfilteredProfileListFlow(); // implemented
             case "ignoreTlsCertificate" -> preferenceRepository.getIgnoreTLSCertificateFlow(); // not used here
@@ -599,80 +2844,377 @@ public class LpaProvider extends ContentProvider
         };
     }
 
-    private boolean getPreference(String name) throws Exception
+    private boolean getPreference(String name) throws Exception
+    {
+        var snapshotEnabled = preferenceSnapshot.get(name);
+
+        if (snapshotEnabled != null)
+            return snapshotEnabled;
+
+        if (bridgePreferences.contains(name))
+        {
+            boolean enabled = getBridgePreferences().getBoolean(name, false);
+            preferenceSnapshot.putIfAbsent(name, enabled);
+
+            return enabled;
+        }
+
+        var preferenceFlow = getPreferenceFlow(name);
+
+        boolean enabled = BuildersKt.runBlocking
+        (
+            EmptyCoroutineContext.INSTANCE,
+            (_, continuation) -> FlowKt.first(preferenceFlow, continuation)
+        );
+
+        if (invertedPreferences.contains(name))
+            enabled = !enabled;
+
+        // the subscription may have delivered a newer value meanwhile
+        preferenceSnapshot.putIfAbsent(name, enabled);
+
+        return enabled;
+    }
+
+    private void setPreference(String name, boolean enabled) throws Exception
+    {
+        if (bridgePreferences.contains(name))
+        {
+            getBridgePreferences().edit().putBoolean(name, enabled).apply();
+            updatePreferenceSnapshot(name, enabled);
+
+            return;
+        }
+
+        var preferenceFlow = getPreferenceFlow(name);
+
+        final boolean snapshotEnabled = enabled;
+
+        if (invertedPreferences.contains(name))
+            enabled = !enabled;
+
+        final boolean enabledFinal = enabled;
+
+        BuildersKt.runBlocking
+        (
+            EmptyCoroutineContext.INSTANCE,
+            (_, continuation) -> preferenceFlow.updatePreference(enabledFinal, continuation)
+        );
+
+        updatePreferenceSnapshot(name, snapshotEnabled);
+    }
+
+    // changes made here and from the app UI both land here, the first read of a preference isn't a change
+    private void updatePreferenceSnapshot(String name, boolean enabled)
+    {
+        var previous = preferenceSnapshot.put(name, enabled);
+
+        if (previous == null || previous == enabled)
+            return;
+
+        preferencesGeneration = versionGeneration.incrementAndGet();
+        notifyChange(PREFERENCES_URI);
+
+        if (name.equals("filterProfileList"))
+            notifyChange(PROFILES_URI);
+    }
+
+    private void safeguardActiveProfile(Map<String, String> args, String iccid) throws Exception
+    {
+        int[] slot = new int[1];
+        int[] port = new int[1];
+        requireSlotAndPort(args, slot, port);
+
+        if (slot[0] == EuiccChannelManager.USB_CHANNEL_ID)
+            return;
+
+        boolean safeguardEnabled = getPreference("safeguardActiveProfile");
+
+        if (!safeguardEnabled)
+            return;
+
+        boolean isTargetActive = iccid == null;
+
+        if (!isTargetActive)
+        {
+            var profiles = getProfiles(args);
+            var activeProfile = LPAUtilsKt.getEnabled(profiles);
+
+            if (activeProfile == null)
+                return;
+
+            isTargetActive = iccid.equals(activeProfile.getIccid());
+        }
+
+        if (isTargetActive)
+            throw new Exception("safeguard_active_profile");
+    }
+
+    // endregion
+
+    // region Store Helpers
+
+    private static final long RESTORE_REFRESH_DELAY_SECONDS = 5;
+
+    // once per process, on the first cards or profiles read
+    private void restoreCardStore()
+    {
+        if (cardStoreRestored)
+            return;
+
+        synchronized (cardStore)
+        {
+            if (cardStoreRestored)
+                return;
+
+            cardStoreRestored = true;
+
+            var cards = cardStore.getCards();
+
+            if (cards == null)
+                return;
+
+            restoredTopology.set(cards.stream()
+                .map(c -> new CardInfo(c.slot(), c.port(), c.eid(), c.removable()))
+                .collect(Collectors.toList()));
+
+            for (CardStore.Card card : cards)
+            {
+                var profiles = card.eid() == null ? null : cardStore.getProfiles(card.eid());
+
+                if (profiles != null)
+                    restoredProfiles.put(cardKey(card.slot(), card.port()), new CachedProfiles(card.eid(), profiles, 0, true));
+            }
+
+            // late enough for the first requests to be answered from what was restored
+            notificationExecutor.schedule
+            (
+                () -> requestExecutor.execute(this::refreshRestoredCards),
+                RESTORE_REFRESH_DELAY_SECONDS,
+                TimeUnit.SECONDS
+            );
+        }
+    }
+
+    private List<CardInfo> takeRestoredTopology()
+    {
+        restoreCardStore();
+
+        return restoredTopology.getAndSet(null);
+    }
+
+    // caller holds the card lock, the stored list counts once reading the EID shows it's the same card
+    // the card has no profile count or version cheaper than the list itself, so a change made outside the bridge
+    // while it was down goes unnoticed until the background re-read, the list is served as stale until then
+    private CachedProfiles getRestoredProfiles(int slot, int port) throws Exception
+    {
+        restoreCardStore();
+
+        var restored = restoredProfiles.remove(cardKey(slot, port));
+
+        if (restored == null)
+            return null;
+
+        String eid = withEuiccChannel(slot, port, (channel, _) -> lpa(channel).getEID());
+
+        if (!restored.eid().equals(eid))
+            return null;
+
+        var cachedProfiles = new CachedProfiles(eid, restored.profiles(), System.nanoTime(), true);
+
+        profileCache.put(cardKey(slot, port), cachedProfiles);
+        updateProfilesVersion(slot, port, cachedProfiles);
+        restoredReads.increment();
+
+        return cachedProfiles;
+    }
+
+    // the list changed on the card, a later process mustn't restore the old one
+    private void forgetStoredProfiles(int slot, int port, CachedProfiles cachedProfiles)
+    {
+        restoredProfiles.remove(cardKey(slot, port));
+
+        var eid = cachedProfiles != null ? cachedProfiles.eid() : getKnownEid(slot, port);
+
+        if (eid != null)
+            cardStore.removeProfiles(eid);
+    }
+
+    // rescans the cards and re-reads every list, observers hear about whatever differs from what was restored
+    private void refreshRestoredCards()
+    {
+        long topologyGenerationBefore = topologyGeneration;
+
+        var topology = backgroundRequest("restoreRefresh", "cards", "fresh", "true");
+
+        if (getError(topology) != null)
+            return;
+
+        if (topologyGeneration != topologyGenerationBefore)
+            notifyChange(CARDS_URI);
+
+        int slotIndex = topology.getColumnIndex("slot");
+        int portIndex = topology.getColumnIndex("port");
+
+        for (int rowIndex = 0; rowIndex < topology.getCount(); rowIndex++)
+        {
+            int slot = ((Number) topology.getValue(rowIndex, slotIndex)).intValue();
+            int port = ((Number) topology.getValue(rowIndex, portIndex)).intValue();
+
+            var versionBefore = profilesVersions.get(cardKey(slot, port));
+
+            backgroundRequest("restoreRefresh", "profiles", "slot", String.valueOf(slot), "port", String.valueOf(port), "fresh", "true");
+
+            var versionAfter = profilesVersions.get(cardKey(slot, port));
+
+            if (versionBefore != null && versionAfter != null && versionBefore.generation() != versionAfter.generation())
+                notifyProfilesChanged(slot, port);
+        }
+    }
+
+    private static List<CardStore.Card> toStoredCards(List<CardInfo> topology)
+    {
+        return topology.stream()
+            .map(c -> new CardStore.Card(c.slot(), c.port(), c.eid(), c.removable()))
+            .collect(Collectors.toList());
+    }
+
+    // endregion
+
+    // region Warm-up Helpers
+
+    // startedAt and endedAt are System.nanoTime(), 0 when not yet
+    private record WarmUpStatus(String state, long startedAt, long endedAt, int cards, String error) { }
+
+    // one pass through every path a first request takes, a card that doesn't answer is reported without failing the rest
+    private void warmUp()
+    {
+        long startedAt = warmUpStatus.startedAt();
+        int cards = 0;
+        String firstError = null;
+
+        try
+        {
+            // preference repository, preference snapshot and the JSON writer
+            requireNoError(backgroundRequest("warmUp", "preferences", "json", "true"));
+
+            // opens and probes each card's channel for its EID, fresh so a topology restored from the last run isn't taken instead
+            var topology = backgroundRequest("warmUp", "cards", "fresh", "true");
+            requireNoError(topology);
+
+            int slotIndex = topology.getColumnIndex("slot");
+            int portIndex = topology.getColumnIndex("port");
+            int eidIndex = topology.getColumnIndex("eid");
+
+            for (int rowIndex = 0; rowIndex < topology.getCount(); rowIndex++)
+            {
+                // non-removable cards and ports without an eUICC
+                if (topology.getValue(rowIndex, eidIndex) == null)
+                    continue;
+
+                var profiles = backgroundRequest
+                (
+                    "warmUp",
+                    "profiles",
+                    "slot", String.valueOf(topology.getValue(rowIndex, slotIndex)),
+                    "port", String.valueOf(topology.getValue(rowIndex, portIndex)),
+                    "fresh", "true"
+                );
+
+                var error = getError(profiles);
+
+                if (error == null)
+                    cards++;
+                else if (firstError == null)
+                    firstError = error;
+
+                warmUpStatus = new WarmUpStatus("warming", startedAt, 0, cards, firstError);
+            }
+
+            warmUpStatus = new WarmUpStatus("ready", startedAt, System.nanoTime(), cards, firstError);
+        }
+        catch (Exception ex)
+        {
+            warmUpStatus = new WarmUpStatus("failed", startedAt, System.nanoTime(), cards, ex.getMessage());
+        }
+    }
+
+    // through execute like any other request, counted under metricsName so it doesn't skew the endpoint's own metrics
+    private ResultCursor backgroundRequest(String metricsName, String endpoint, String... args)
     {
-        var preferenceFlow = getPreferenceFlow(name);
-
-        boolean enabled = BuildersKt.runBlocking
-        (
-            EmptyCoroutineContext.INSTANCE,
-            (_, continuation) -> FlowKt.first(preferenceFlow, continuation)
-        );
+        var requestArgs = new HashMap<String, String>();
 
-        if (invertedPreferences.contains(name))
-            enabled = !enabled;
+        for (int index = 0; index + 1 < args.length; index += 2)
+            requestArgs.put(args[index], args[index + 1]);
 
-        return enabled;
+        return execute(endpoint, metricsName, requestArgs, System.nanoTime(), rows -> toCursor(rows, null, requestArgs), LpaProvider::withTraceColumn);
     }
 
-    private void setPreference(String name, boolean enabled) throws Exception
-    {
-        var preferenceFlow = getPreferenceFlow(name);
+    // endregion
 
-        if (invertedPreferences.contains(name))
-            enabled = !enabled;
+    // region Arg Helpers
 
-        final boolean enabledFinal = enabled;
+    private static String getEndpointFromUri(Uri uri)
+    {
+        var segments = uri.getPathSegments();
 
-        BuildersKt.runBlocking
-        (
-            EmptyCoroutineContext.INSTANCE,
-            (_, continuation) -> preferenceFlow.updatePreference(enabledFinal, continuation)
-        );
+        return segments.isEmpty() ? null : segments.get(0);
     }
 
-    private void safeguardActiveProfile(Map<String, String> args, String iccid) throws Exception
+    private static Map<String, String> getArgsFromUri(Uri uri)
     {
-        int[] slot = new int[1];
-        int[] port = new int[1];
-        requireSlotAndPort(args, slot, port);
+        var args = new LinkedHashMap<String, String>();
 
-        if (slot[0] == EuiccChannelManager.USB_CHANNEL_ID)
-            return;
+        for (String name : uri.getQueryParameterNames())
+        {
+            args.put(name, URLDecoder.decode(uri.getQueryParameter(name), StandardCharsets.UTF_8));
+        }
 
-        boolean safeguardEnabled = getPreference("safeguardActiveProfile");
+        // profiles/<slot>/<port>, the form change notifications use
+        var segments = uri.getPathSegments();
 
-        if (!safeguardEnabled)
-            return;
+        if (segments.size() == 3)
+        {
+            args.putIfAbsent("slot", segments.get(1));
+            args.putIfAbsent("port", segments.get(2));
+        }
 
-        boolean isTargetActive = iccid == null;
+        return args;
+    }
 
-        if (!isTargetActive)
-        {
-            var profiles = getProfiles(args);
-            var activeProfile = LPAUtilsKt.getEnabled(profiles);
+    // arg is a query string like the one query takes, extras values win
+    @SuppressWarnings("deprecation")
+    private static Map<String, String> getArgsFromCall(String arg, Bundle extras)
+    {
+        Map<String, String> args = arg == null || arg.isEmpty()
+            ? new LinkedHashMap<>()
+            : getArgsFromUri(Uri.parse("content://lpa?" + arg));
 
-            if (activeProfile == null)
-                return;
+        if (extras != null)
+        {
+            for (String key : extras.keySet())
+            {
+                Object value = extras.get(key);
 
-            isTargetActive = iccid.equals(activeProfile.getIccid());
+                if (value != null)
+                    args.put(key, value.toString());
+            }
         }
 
-        if (isTargetActive)
-            throw new Exception("safeguard_active_profile");
+        return args;
     }
 
-    // endregion
-
-    // region Arg Helpers
-
-    private static Map<String, String> getArgsFromUri(Uri uri)
+    // nested objects and arrays are passed on as json
+    private static Map<String, String> getArgsFromJson(JsonObject object)
     {
         var args = new LinkedHashMap<String, String>();
 
-        for (String name : uri.getQueryParameterNames())
+        for (var arg : object.entrySet())
         {
-            args.put(name, URLDecoder.decode(uri.getQueryParameter(name), StandardCharsets.UTF_8));
+            var value = arg.getValue();
+
+            if (!value.isJsonNull())
+                args.put(arg.getKey(), value.isJsonPrimitive() ? value.getAsString() : value.toString());
         }
 
         return args;
@@ -723,6 +3265,13 @@ public class LpaProvider extends ContentProvider
         return true;
     }
 
+    private static boolean isAsyncDownload(Map<String, String> args)
+    {
+        boolean[] async = new boolean[1];
+
+        return tryGetArgAsBoolean(args, "async", async) && async[0];
+    }
+
     private static void requireSlotAndPort(Map<String, String> args, int[] slotOut, int[] portOut) throws Exception
     {
         final String slotArg = "slot";
@@ -737,65 +3286,206 @@ public class LpaProvider extends ContentProvider
 
     // endregion
 
-    // region Row Helpers
+    // region Trace Helpers
+
+    private static final int MAX_TRACES = 32;
+
+    private Trace getTrace()
+    {
+        var context = getRequestContext();
+
+        return context == null ? null : context.getTrace();
+    }
+
+    // no-op unless the request on this thread asked for a trace
+    private Trace.Span span(String name)
+    {
+        var trace = getTrace();
+
+        return trace == null ? Trace.Span.NONE : trace.begin(name);
+    }
 
-    private static MatrixCursor rows(String[] columns, Object[][] values)
+    private void addTrace(Trace trace)
     {
-        var rows = new MatrixCursor(columns);
+        synchronized (traces)
+        {
+            if (traces.size() >= MAX_TRACES)
+                traces.removeLast();
+
+            traces.addFirst(trace);
+        }
+    }
 
-        for (Object[] rowValues : values)
+    // newest first
+    private List<Trace> getTraces()
+    {
+        synchronized (traces)
         {
-            rows.addRow(rowValues);
+            return new ArrayList<>(traces);
         }
+    }
 
-        return rows;
+    // endregion
+
+    // region Row Helpers
+
+    // endpoints whose rows are a list, everything else returns at most one row
+    private static final Set<String> LIST_ENDPOINTS = Set.of
+    (
+        "preferences",
+        "cards",
+        "profiles",
+        "jobs",
+        "provision",
+        "provisioningTasks",
+        "traces",
+        "metrics",
+        "channels",
+        "cancel",
+        "timeouts",
+        "notifications",
+        "flushNotifications",
+        "batch"
+    );
+
+    private static ResultCursor rows(String[] columns, Object[][] values)
+    {
+        return new ResultCursor(columns, Arrays.asList(values));
     }
 
-    private static MatrixCursor row(String column, String value)
+    private static ResultCursor row(String column, Object value)
     {
         return rows(new String[] { column }, new Object[][] { new Object[] { value } });
     }
 
-    private static MatrixCursor empty()
+    // only error() rows, jobs, tasks and notifications carry an error column of their own
+    private static String getError(ResultCursor rows)
     {
-        return new MatrixCursor(new String[0]);
+        var columns = rows.getColumnNames();
+
+        if (columns.length != 1 || !columns[0].equals("error") || rows.getCount() == 0)
+            return null;
+
+        return String.valueOf(rows.getValue(0, 0));
+    }
+
+    // an error row, or a success row that reports nothing was done
+    private static boolean isFailure(ResultCursor rows)
+    {
+        if (rows.getColumnIndex("error") >= 0)
+            return true;
+
+        int successIndex = rows.getColumnIndex("success");
+
+        return successIndex >= 0 && rows.getCount() > 0 && Boolean.FALSE.equals(rows.getValue(0, successIndex));
+    }
+
+    // trace goes on the first row, an empty result gets a row of its own
+    private static ResultCursor withTraceColumn(ResultCursor rows, String trace)
+    {
+        var columnNames = rows.getColumnNames();
+        var columns = Arrays.copyOf(columnNames, columnNames.length + 1);
+        columns[columnNames.length] = "trace";
+
+        var tracedRows = new ResultCursor(columns);
+
+        for (int rowIndex = 0; rowIndex < Math.max(rows.getCount(), 1); rowIndex++)
+        {
+            var values = new Object[columns.length];
+
+            for (int colIndex = 0; rowIndex < rows.getCount() && colIndex < columnNames.length; colIndex++)
+                values[colIndex] = rows.getValue(rowIndex, colIndex);
+
+            if (rowIndex == 0)
+                values[columnNames.length] = trace;
+
+            tracedRows.addRow(values);
+        }
+
+        return tracedRows;
+    }
+
+    private static ResultCursor requireNoError(ResultCursor rows) throws Exception
+    {
+        var error = getError(rows);
+
+        if (error != null)
+            throw new Exception(error);
+
+        return rows;
+    }
+
+    private static ResultCursor empty()
+    {
+        return new ResultCursor(new String[0]);
     }
 
-    private static MatrixCursor success()
+    private static ResultCursor success()
     {
         return success(true);
     }
 
-    private static MatrixCursor success(boolean success)
+    private static ResultCursor success(boolean success)
     {
-        return row("success", Boolean.toString(success));
+        return row("success", success);
     }
 
-    private static MatrixCursor error(String message)
+    private static ResultCursor error(String message)
     {
         return row("error", message);
     }
 
-    private static MatrixCursor missingArgError(String argName)
+    private static ResultCursor missingArgError(String argName)
     {
         return error("missing_arg_" + argName);
     }
 
-    private static MatrixCursor profile(LocalProfileInfo profile)
+    private static ResultCursor profile(LocalProfileInfo profile)
     {
         return profiles(Collections.singletonList(profile));
     }
 
-    private static MatrixCursor profiles(List<LocalProfileInfo> profiles)
+    private static ResultCursor notModified(String version)
+    {
+        return notModified(version, false);
+    }
+
+    private static ResultCursor notModified(String version, boolean stale)
+    {
+        if (stale)
+            return rows(new String[] { "notModified", "version", "stale" }, new Object[][] { { true, version, true } });
+
+        return rows(new String[] { "notModified", "version" }, new Object[][] { { true, version } });
+    }
+
+    private static ResultCursor profiles(List<LocalProfileInfo> profiles)
+    {
+        return profiles(profiles, null, false);
+    }
+
+    private static ResultCursor profiles(List<LocalProfileInfo> profiles, String version)
+    {
+        return profiles(profiles, version, false);
+    }
+
+    // no version column without a version, stale only on lists that may not match the card: the last snapshot during a write, or a restored list
+    private static ResultCursor profiles(List<LocalProfileInfo> profiles, String version, boolean stale)
     {
         String[] columns =
         {
             "iccid",
             "enabled",
             "provider",
-            "nickname"
+            "nickname",
+            "version",
+            "stale"
         };
 
+        if (version == null)
+            columns = Arrays.copyOf(columns, columns.length - 2);
+        else if (!stale)
+            columns = Arrays.copyOf(columns, columns.length - 1);
+
         Object[][] rows = profiles.stream()
             .map(p ->
             {
@@ -809,7 +3499,9 @@ public class LpaProvider extends ContentProvider
                     p.getIccid(),
                     LPAUtilsKt.isEnabled(p),
                     p.getProviderName(),
-                    nickname
+                    nickname,
+                    version,
+                    stale
                 };
             })
             .toArray(Object[][]::new);
@@ -817,163 +3509,232 @@ public class LpaProvider extends ContentProvider
         return rows(columns, rows);
     }
 
-    private static MatrixCursor projectColumns(MatrixCursor rows, String[] projection)
+    private static ResultCursor jobs(List<DownloadJob> jobs)
     {
-        return projectColumns(rows, projection, null);
+        String[] columns =
+        {
+            "id",
+            "slot",
+            "port",
+            "state",
+            "downloadState",
+            "progress",
+            "iccid",
+            "error"
+        };
+
+        Object[][] rows = jobs.stream()
+            .map(j ->
+            {
+                var downloadState = j.getDownloadState();
+
+                return new Object[]
+                {
+                    j.getId(),
+                    j.getSlot(),
+                    j.getPort(),
+                    j.getState().toString(),
+                    downloadState == null ? null : downloadState.name(),
+                    j.getProgress(),
+                    j.getIccid(),
+                    j.getError()
+                };
+            })
+            .toArray(Object[][]::new);
+
+        return rows(columns, rows);
     }
 
-    private static MatrixCursor projectColumns(MatrixCursor rows, String[] projection, String[] preserve)
+    private ResultCursor toCursor(ResultCursor rows, String[] projection, Map<String, String> args)
     {
-        var rowCols = new LinkedHashSet<String>(Arrays.asList(rows.getColumnNames()));
-        var outCols = new LinkedHashSet<String>();
-
-        if (projection != null && projection.length > 0)
-            outCols.addAll(Arrays.asList(projection));
-        else
-            outCols.addAll(rowCols);
+        boolean[] json = new boolean[1];
 
-        if (preserve != null && preserve.length > 0)
+        try (var _ = span("projection"))
         {
-            Stream.of(preserve)
-                .filter(rowCols::contains)
-                .forEach(outCols::add);
+            rows = projectColumns(rows, projection, new String[] { "error", "notModified", "stale" });
         }
 
-        if (outCols.isEmpty())
-            return rows;
-
-        var outColsArray = outCols.toArray(new String[0]);
-        var outRows = new MatrixCursor(outColsArray);
+        if (tryGetArgAsBoolean(args, "json", json) && json[0])
+        {
+            try (var _ = span("json"))
+            {
+                rows = row("rows", rowsToJson(rows));
+            }
+        }
 
-        rows.moveToPosition(-1);
+        return rows;
+    }
 
-        while (rows.moveToNext())
+    // single rows, errors and notModified as top-level values, lists as a "rows" array of bundles
+    private Bundle toBundle(String endpoint, ResultCursor rows)
+    {
+        try (var _ = span("bundle"))
         {
-            var row = new Object[outColsArray.length];
+            boolean single = endpoint == null
+                || !LIST_ENDPOINTS.contains(endpoint)
+                || getError(rows) != null
+                || rows.getColumnIndex("notModified") >= 0;
 
-            for (int rowIndex = 0; rowIndex < outColsArray.length; rowIndex++)
-            {
-                String colName = outColsArray[rowIndex];
-                int colIndex = rows.getColumnIndex(colName);
+            if (single)
+                return rows.getCount() == 0 ? new Bundle() : rowToBundle(rows, 0);
 
-                if (colIndex < 0)
-                {
-                    row[rowIndex] = null;
-                    continue;
-                }
+            var rowBundles = new Bundle[rows.getCount()];
 
-                switch (rows.getType(colIndex))
-                {
-                    case Cursor.FIELD_TYPE_NULL:
-                        row[rowIndex] = null;
-                        break;
-                    case Cursor.FIELD_TYPE_INTEGER:
-                        row[rowIndex] = rows.getLong(colIndex);
-                        break;
-                    case Cursor.FIELD_TYPE_FLOAT:
-                        row[rowIndex] = rows.getDouble(colIndex);
-                        break;
-                    case Cursor.FIELD_TYPE_BLOB:
-                        row[rowIndex] = rows.getBlob(colIndex);
-                        break;
-                    case Cursor.FIELD_TYPE_STRING:
-                    default:
-                        row[rowIndex] = rows.getString(colIndex);
-                        break;
-                }
-            }
+            for (int rowIndex = 0; rowIndex < rowBundles.length; rowIndex++)
+                rowBundles[rowIndex] = rowToBundle(rows, rowIndex);
 
-            outRows.addRow(row);
-        }
+            var bundle = new Bundle(1);
+            bundle.putParcelableArray("rows", rowBundles);
 
-        return outRows;
+            return bundle;
+        }
     }
 
-    private String rowsToJson(MatrixCursor rows)
+    private static Bundle rowToBundle(ResultCursor rows, int rowIndex)
     {
         String[] rowCols = rows.getColumnNames();
-        var outRows = new ArrayList<Map<String, Object>>();
+        var bundle = new Bundle(rowCols.length);
 
-        rows.moveToPosition(-1);
+        for (int colIndex = 0; colIndex < rowCols.length; colIndex++)
+        {
+            String name = rowCols[colIndex];
+            Object value = rows.getValue(rowIndex, colIndex);
+
+            if (value instanceof Boolean)
+                bundle.putBoolean(name, (Boolean) value);
+            else if (value instanceof Integer)
+                bundle.putInt(name, (Integer) value);
+            else if (value instanceof Float || value instanceof Double)
+                bundle.putDouble(name, ((Number) value).doubleValue());
+            else if (value instanceof Number)
+                bundle.putLong(name, ((Number) value).longValue());
+            else if (value instanceof byte[])
+                bundle.putByteArray(name, (byte[]) value);
+            else
+                bundle.putString(name, value == null ? null : value.toString());
+        }
+
+        return bundle;
+    }
 
-        while (rows.moveToNext())
+    private static ResultCursor tasks(List<ProvisioningTask> tasks)
+    {
+        String[] columns =
         {
-            var row = new LinkedHashMap<String, Object>();
+            "id",
+            "submission",
+            "slot",
+            "port",
+            "priority",
+            "state",
+            "step",
+            "iccid",
+            "error"
+        };
 
-            for (String colName : rowCols)
+        Object[][] rows = tasks.stream()
+            .sorted(Comparator.comparingLong(ProvisioningTask::getSequence))
+            .map(t ->
             {
-                int colIndex = rows.getColumnIndex(colName);
+                var step = t.getStep();
 
-                switch (rows.getType(colIndex))
+                return new Object[]
                 {
-                    case Cursor.FIELD_TYPE_NULL:
-                        row.put(colName, null);
-                        break;
-                    case Cursor.FIELD_TYPE_INTEGER:
-                        row.put(colName, rows.getLong(colIndex));
-                        break;
-                    case Cursor.FIELD_TYPE_FLOAT:
-                        row.put(colName, rows.getDouble(colIndex));
-                        break;
-                    case Cursor.FIELD_TYPE_BLOB:
-                        byte[] blob = rows.getBlob(colIndex);
-                        String blobBase64 = Base64.getEncoder().encodeToString(blob);
-                        row.put(colName, blobBase64);
-                        break;
-                    case Cursor.FIELD_TYPE_STRING:
-                    default:
-                        row.put(colName, rows.getString(colIndex));
-                        break;
-                }
-            }
+                    t.getId(),
+                    t.getSubmission(),
+                    t.getSlot(),
+                    t.getPort(),
+                    t.getPriority(),
+                    t.getState().toString(),
+                    step == null ? null : step.toString(),
+                    t.getIccid(),
+                    t.getError()
+                };
+            })
+            .toArray(Object[][]::new);
 
-            var booleanCols = List.of
-            (
-                "success",
-                "enabled"
-            );
+        return rows(columns, rows);
+    }
 
-            for (String colName : booleanCols)
-            {
-                Object colValue = row.get(colName);
+    private static ResultCursor projectColumns(ResultCursor rows, String[] projection)
+    {
+        return projectColumns(rows, projection, null);
+    }
 
-                if (colValue instanceof String)
-                {
-                    String colValueString = (String) colValue;
+    private static ResultCursor projectColumns(ResultCursor rows, String[] projection, String[] preserve)
+    {
+        var rowCols = new LinkedHashSet<String>(Arrays.asList(rows.getColumnNames()));
+        var outCols = new LinkedHashSet<String>();
 
-                    if (colValueString.equalsIgnoreCase(Boolean.toString(false)) || colValueString.equalsIgnoreCase(Boolean.toString(true)))
-                    {
-                        row.put(colName, Boolean.parseBoolean(colValueString));
-                    }
-                }
-            }
+        if (projection != null && projection.length > 0)
+            outCols.addAll(Arrays.asList(projection));
+        else
+            outCols.addAll(rowCols);
 
-            outRows.add(row);
+        if (preserve != null && preserve.length > 0)
+        {
+            Stream.of(preserve)
+                .filter(rowCols::contains)
+                .forEach(outCols::add);
         }
 
-        return gson.toJson(outRows);
+        if (outCols.isEmpty())
+            return rows;
+
+        return rows.project(outCols.toArray(new String[0]));
     }
 
-    // endregion
+    private static String rowsToJson(ResultCursor rows)
+    {
+        String[] rowCols = rows.getColumnNames();
+        int rowCount = rows.getCount();
 
-    // region HTTP Helpers
+        var json = new StringWriter();
 
-    private void httpPostAsJson(URL url, Map<String, Object> data) throws Exception
-    {
-        String json = gson.toJson(data);
+        try (var writer = new JsonWriter(json))
+        {
+            writer.setSerializeNulls(true);
+            writer.beginArray();
+
+            for (int rowIndex = 0; rowIndex < rowCount; rowIndex++)
+            {
+                writer.beginObject();
 
-        var httpConnection = (HttpURLConnection) url.openConnection();
+                for (int colIndex = 0; colIndex < rowCols.length; colIndex++)
+                {
+                    writer.name(rowCols[colIndex]);
+                    writeJsonValue(writer, rows.getValue(rowIndex, colIndex));
+                }
 
-        httpConnection.setRequestMethod("POST");
-        httpConnection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-        httpConnection.setDoOutput(true);
+                writer.endObject();
+            }
 
-        try (var outputStream = httpConnection.getOutputStream())
+            writer.endArray();
+        }
+        catch (IOException ex)
         {
-            outputStream.write(json.getBytes(StandardCharsets.UTF_8));
+            // StringWriter never throws
+            throw new UncheckedIOException(ex);
         }
 
-        httpConnection.getInputStream().close();
+        return json.toString();
+    }
+
+    // typed per value, a column may mix integral and fractional numbers or hold different types across batch ops
+    private static void writeJsonValue(JsonWriter writer, Object value) throws IOException
+    {
+        if (value == null)
+            writer.nullValue();
+        else if (value instanceof Boolean bool)
+            writer.value(bool);
+        else if (value instanceof Float || value instanceof Double)
+            writer.value(((Number) value).doubleValue());
+        else if (value instanceof Number number)
+            writer.value(number.longValue());
+        else if (value instanceof byte[] blob)
+            writer.value(Base64.getEncoder().encodeToString(blob));
+        else
+            writer.value(value.toString());
     }
 
     // endregion
@@ -0,0 +1,236 @@
+package im.angry.openeuicc.bridge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+// Per-endpoint request counts, error codes and phase latencies, recorded with lock-free counters
+final class Metrics
+{
+    enum Phase
+    {
+        LOCK_WAIT("lockWait"),
+        // waiting on an identical read already in flight
+        COALESCED("coalesced"),
+        CHANNEL("channel"),
+        LPA("lpa"),
+        SERIALIZATION("serialization");
+
+        final String metricName;
+
+        Phase(String metricName)
+        {
+            this.metricName = metricName;
+        }
+    }
+
+    // distinct error codes kept per endpoint, the rest are counted as "other"
+    private static final int MAX_ERROR_CODES = 32;
+    // the provider's own codes, e.g. timeout or missing_arg_slot, anything else is a free-form exception message
+    private static final Pattern ERROR_CODE = Pattern.compile("[a-z][a-z0-9_]*");
+
+    static final class Request
+    {
+        private String endpoint;
+        private final long startedAt = System.nanoTime();
+        // added to from whichever thread runs the request, including one it was abandoned on after a deadline
+        private final AtomicLongArray phaseNanos = new AtomicLongArray(Phase.values().length);
+        private volatile boolean ended;
+
+        private Request(String endpoint)
+        {
+            this.endpoint = endpoint;
+        }
+
+        void setEndpoint(String endpoint)
+        {
+            this.endpoint = endpoint;
+        }
+    }
+
+    // log-linear buckets over microseconds, 4 per power of two, so percentiles are within 25%
+    static final class Histogram
+    {
+        private static final int SUB_BUCKETS = 4;
+        private static final int BUCKETS = SUB_BUCKETS * 48;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos)
+        {
+            buckets.incrementAndGet(bucketOf(Math.max(0, nanos) / 1_000));
+            count.increment();
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        long getCount()
+        {
+            return count.sum();
+        }
+
+        double getMaxMillis()
+        {
+            return maxNanos.get() / 1_000_000.0;
+        }
+
+        // upper bound of the bucket holding the quantile
+        double getPercentileMillis(double quantile)
+        {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+
+            for (int bucket = 0; bucket < BUCKETS; bucket++)
+            {
+                counts[bucket] = buckets.get(bucket);
+                total += counts[bucket];
+            }
+
+            if (total == 0)
+                return 0;
+
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+
+            for (int bucket = 0; bucket < BUCKETS; bucket++)
+            {
+                seen += counts[bucket];
+
+                if (seen >= rank)
+                    return Math.min(upperBoundMicros(bucket) / 1_000.0, getMaxMillis());
+            }
+
+            return getMaxMillis();
+        }
+
+        private static int bucketOf(long micros)
+        {
+            if (micros < SUB_BUCKETS)
+                return (int) micros;
+
+            int msb = 63 - Long.numberOfLeadingZeros(micros);
+            int sub = (int) (micros >>> (msb - 2)) & (SUB_BUCKETS - 1);
+
+            return Math.min((msb - 1) * SUB_BUCKETS + sub, BUCKETS - 1);
+        }
+
+        private static long upperBoundMicros(int bucket)
+        {
+            if (bucket < SUB_BUCKETS)
+                return bucket + 1;
+
+            int msb = bucket / SUB_BUCKETS + 1;
+            int sub = bucket % SUB_BUCKETS;
+
+            return (long) (SUB_BUCKETS + sub + 1) << (msb - 2);
+        }
+    }
+
+    private static final class EndpointMetrics
+    {
+        final LongAdder requests = new LongAdder();
+        final Histogram total = new Histogram();
+        final Histogram[] phases = new Histogram[Phase.values().length];
+        final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        EndpointMetrics()
+        {
+            for (int phase = 0; phase < phases.length; phase++)
+                phases[phase] = new Histogram();
+        }
+    }
+
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentSkipListMap<>();
+
+    Request begin(String endpoint)
+    {
+        return new Request(endpoint);
+    }
+
+    // ignored once the request has ended, e.g. when work abandoned at its deadline finishes later
+    void addPhase(Request request, Phase phase, long nanos)
+    {
+        if (!request.ended)
+            request.phaseNanos.addAndGet(phase.ordinal(), nanos);
+    }
+
+    void end(Request request, String error)
+    {
+        request.ended = true;
+
+        var endpoint = endpoints.computeIfAbsent(request.endpoint, _ -> new EndpointMetrics());
+
+        endpoint.requests.increment();
+        endpoint.total.record(System.nanoTime() - request.startedAt);
+
+        for (Phase phase : Phase.values())
+        {
+            long nanos = request.phaseNanos.get(phase.ordinal());
+
+            if (nanos > 0)
+                endpoint.phases[phase.ordinal()].record(nanos);
+        }
+
+        if (error != null)
+        {
+            // messages may carry ICCIDs or EIDs, they're counted as "unexpected" instead
+            var errorCode = ERROR_CODE.matcher(error).matches() ? error : "unexpected";
+            var errorKey = endpoint.errors.containsKey(errorCode) || endpoint.errors.size() < MAX_ERROR_CODES ? errorCode : "other";
+            endpoint.errors.computeIfAbsent(errorKey, _ -> new LongAdder()).increment();
+        }
+    }
+
+    // metric, count, p50, p95, p99, max (milliseconds, null for plain counters)
+    List<Object[]> getRows()
+    {
+        var rows = new ArrayList<Object[]>();
+
+        for (var entry : endpoints.entrySet())
+        {
+            String name = entry.getKey();
+            var endpoint = entry.getValue();
+
+            rows.add(counterRow(name + ".requests", endpoint.requests.sum()));
+            rows.add(histogramRow(name + ".total", endpoint.total));
+
+            for (Phase phase : Phase.values())
+            {
+                var histogram = endpoint.phases[phase.ordinal()];
+
+                if (histogram.getCount() > 0)
+                    rows.add(histogramRow(name + "." + phase.metricName, histogram));
+            }
+
+            endpoint.errors.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> rows.add(counterRow(name + ".errors." + e.getKey(), e.getValue().sum())));
+        }
+
+        return rows;
+    }
+
+    static Object[] counterRow(String metric, long count)
+    {
+        return new Object[] { metric, count, null, null, null, null };
+    }
+
+    private static Object[] histogramRow(String metric, Histogram histogram)
+    {
+        return new Object[]
+        {
+            metric,
+            histogram.getCount(),
+            histogram.getPercentileMillis(0.50),
+            histogram.getPercentileMillis(0.95),
+            histogram.getPercentileMillis(0.99),
+            histogram.getMaxMillis()
+        };
+    }
+}
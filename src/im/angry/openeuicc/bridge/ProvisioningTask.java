@@ -0,0 +1,139 @@
+package im.angry.openeuicc.bridge;
+
+import java.util.Map;
+import java.util.UUID;
+import java.time.Instant;
+
+final class ProvisioningTask
+{
+    enum State
+    {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED;
+
+        @Override
+        public String toString()
+        {
+            return name().toLowerCase();
+        }
+    }
+
+    enum Step
+    {
+        DOWNLOAD,
+        NICKNAME,
+        ENABLE;
+
+        @Override
+        public String toString()
+        {
+            return name().toLowerCase();
+        }
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String submission;
+    private final long sequence;
+    private final int slot;
+    private final int port;
+    private final int priority;
+    private final boolean enable;
+    private final String smdpAddress;
+    // the submission's cap on downloads running against smdpAddress
+    private final int maxPerSmdp;
+    // downloadProfile/setProfileNickname args, slot and port included
+    private final Map<String, String> args;
+    private final long createdAt = Instant.now().getEpochSecond();
+
+    private volatile State state = State.QUEUED;
+    private volatile Step step;
+    private volatile String iccid;
+    private volatile String error;
+    private volatile long updatedAt = createdAt;
+
+    ProvisioningTask(String submission, long sequence, int slot, int port, int priority, boolean enable, String smdpAddress, int maxPerSmdp, Map<String, String> args)
+    {
+        this.submission = submission;
+        this.sequence = sequence;
+        this.slot = slot;
+        this.port = port;
+        this.priority = priority;
+        this.enable = enable;
+        this.smdpAddress = smdpAddress;
+        this.maxPerSmdp = maxPerSmdp;
+        this.args = args;
+    }
+
+    String getId() { return id; }
+
+    String getSubmission() { return submission; }
+
+    long getSequence() { return sequence; }
+
+    int getSlot() { return slot; }
+
+    int getPort() { return port; }
+
+    int getPriority() { return priority; }
+
+    boolean getEnable() { return enable; }
+
+    String getSmdpAddress() { return smdpAddress; }
+
+    int getMaxPerSmdp() { return maxPerSmdp; }
+
+    Map<String, String> getArgs() { return args; }
+
+    long getUpdatedAt() { return updatedAt; }
+
+    State getState() { return state; }
+
+    Step getStep() { return step; }
+
+    String getIccid() { return iccid; }
+
+    String getError() { return error; }
+
+    boolean isFinished()
+    {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+
+    void running()
+    {
+        state = State.RUNNING;
+        touch();
+    }
+
+    void step(Step step)
+    {
+        this.step = step;
+        touch();
+    }
+
+    void downloaded(String iccid)
+    {
+        this.iccid = iccid;
+        touch();
+    }
+
+    void completed()
+    {
+        state = State.COMPLETED;
+        touch();
+    }
+
+    void failed(String error)
+    {
+        this.error = error;
+        state = State.FAILED;
+        touch();
+    }
+
+    private void touch()
+    {
+        updatedAt = Instant.now().getEpochSecond();
+    }
+}
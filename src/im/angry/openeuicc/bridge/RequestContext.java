@@ -0,0 +1,61 @@
+package im.angry.openeuicc.bridge;
+
+// what a request carries to every thread working on it: its metrics record, its trace and whether it was cancelled
+final class RequestContext
+{
+    private final Metrics.Request metrics;
+    private final Trace trace;
+    private volatile String cancelReason;
+    private boolean committed;
+    private Runnable onCancel;
+
+    RequestContext(Metrics.Request metrics, Trace trace)
+    {
+        this.metrics = metrics;
+        this.trace = trace;
+    }
+
+    Metrics.Request getMetrics() { return metrics; }
+
+    // null unless the request asked for one
+    Trace getTrace() { return trace; }
+
+    // reason once cancelled, e.g. "timeout"
+    String getCancelReason() { return cancelReason; }
+
+    // false once the request has started writing to the card
+    synchronized boolean cancel(String reason)
+    {
+        if (committed)
+            return false;
+
+        if (cancelReason == null)
+        {
+            cancelReason = reason;
+
+            if (onCancel != null)
+                onCancel.run();
+        }
+
+        return true;
+    }
+
+    // a write that has started runs to the end, false if the request was cancelled before
+    synchronized boolean commit()
+    {
+        if (cancelReason != null)
+            return false;
+
+        committed = true;
+        return true;
+    }
+
+    // wakes whatever the request is blocked on, runs right away if it is already cancelled
+    synchronized void setOnCancel(Runnable onCancel)
+    {
+        this.onCancel = onCancel;
+
+        if (onCancel != null && cancelReason != null)
+            onCancel.run();
+    }
+}
@@ -0,0 +1,195 @@
+package im.angry.openeuicc.bridge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import android.database.AbstractCursor;
+import android.database.Cursor;
+
+// Holds typed rows once; projections are column-index views over the same rows
+final class ResultCursor extends AbstractCursor
+{
+    private final String[] columns;
+    // view column index -> row value index, -1 for columns the rows don't have
+    private final int[] columnMap;
+    private final List<Object[]> rows;
+
+    ResultCursor(String[] columns)
+    {
+        this(columns, new ArrayList<>());
+    }
+
+    ResultCursor(String[] columns, List<Object[]> rows)
+    {
+        this(columns, identity(columns.length), rows);
+    }
+
+    private ResultCursor(String[] columns, int[] columnMap, List<Object[]> rows)
+    {
+        this.columns = columns;
+        this.columnMap = columnMap;
+        this.rows = rows;
+    }
+
+    void addRow(Object[] values)
+    {
+        rows.add(values);
+    }
+
+    // columns missing from this cursor read as null
+    ResultCursor project(String[] projection)
+    {
+        if (Arrays.equals(projection, columns))
+            return this;
+
+        var projectionMap = new int[projection.length];
+
+        for (int colIndex = 0; colIndex < projection.length; colIndex++)
+        {
+            int sourceIndex = indexOf(columns, projection[colIndex]);
+            projectionMap[colIndex] = sourceIndex < 0 ? -1 : columnMap[sourceIndex];
+        }
+
+        return new ResultCursor(projection, projectionMap, rows);
+    }
+
+    // same rows and columns with a position of its own
+    ResultCursor view()
+    {
+        return new ResultCursor(columns, columnMap, rows);
+    }
+
+    Object getValue(int row, int column)
+    {
+        int valueIndex = columnMap[column];
+
+        if (valueIndex < 0)
+            return null;
+
+        var values = rows.get(row);
+
+        return valueIndex < values.length ? values[valueIndex] : null;
+    }
+
+    Object getValue(int column)
+    {
+        return getValue(getPosition(), column);
+    }
+
+    @Override
+    public int getCount()
+    {
+        return rows.size();
+    }
+
+    @Override
+    public String[] getColumnNames()
+    {
+        return columns;
+    }
+
+    @Override
+    public int getType(int column)
+    {
+        var value = getValue(column);
+
+        if (value == null)
+            return Cursor.FIELD_TYPE_NULL;
+        else if (value instanceof byte[])
+            return Cursor.FIELD_TYPE_BLOB;
+        else if (value instanceof Float || value instanceof Double)
+            return Cursor.FIELD_TYPE_FLOAT;
+        else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+            return Cursor.FIELD_TYPE_INTEGER;
+        else
+            return Cursor.FIELD_TYPE_STRING;
+    }
+
+    @Override
+    public String getString(int column)
+    {
+        var value = getValue(column);
+
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public short getShort(int column)
+    {
+        return (short) getLong(column);
+    }
+
+    @Override
+    public int getInt(int column)
+    {
+        return (int) getLong(column);
+    }
+
+    @Override
+    public long getLong(int column)
+    {
+        var value = getValue(column);
+
+        if (value == null)
+            return 0;
+
+        if (value instanceof Number)
+            return ((Number) value).longValue();
+
+        return Long.parseLong(value.toString());
+    }
+
+    @Override
+    public float getFloat(int column)
+    {
+        return (float) getDouble(column);
+    }
+
+    @Override
+    public double getDouble(int column)
+    {
+        var value = getValue(column);
+
+        if (value == null)
+            return 0;
+
+        if (value instanceof Number)
+            return ((Number) value).doubleValue();
+
+        return Double.parseDouble(value.toString());
+    }
+
+    @Override
+    public byte[] getBlob(int column)
+    {
+        return (byte[]) getValue(column);
+    }
+
+    @Override
+    public boolean isNull(int column)
+    {
+        return getValue(column) == null;
+    }
+
+    private static int[] identity(int length)
+    {
+        var map = new int[length];
+
+        for (int index = 0; index < length; index++)
+            map[index] = index;
+
+        return map;
+    }
+
+    private static int indexOf(String[] columns, String column)
+    {
+        for (int index = 0; index < columns.length; index++)
+        {
+            if (columns[index].equals(column))
+                return index;
+        }
+
+        return -1;
+    }
+}
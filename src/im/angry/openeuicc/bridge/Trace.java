@@ -0,0 +1,125 @@
+package im.angry.openeuicc.bridge;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.stream.JsonWriter;
+
+// Spans of one request that asked for a trace, nested in the order they were opened
+final class Trace
+{
+    static final class Span implements AutoCloseable
+    {
+        // handed out when the request isn't traced
+        static final Span NONE = new Span(null, null, 0, 0);
+
+        private final Trace trace;
+        private final String name;
+        private final int depth;
+        private final long start;
+        private long duration = -1;
+
+        private Span(Trace trace, String name, int depth, long start)
+        {
+            this.trace = trace;
+            this.name = name;
+            this.depth = depth;
+            this.start = start;
+        }
+
+        @Override
+        public void close()
+        {
+            if (trace != null)
+                trace.close(this);
+        }
+    }
+
+    private final String endpoint;
+    private final long startedAt;
+    private final long startedAtMillis = System.currentTimeMillis();
+
+    // guarded by this, spans may be opened on the channel manager's thread
+    private final List<Span> spans = new ArrayList<>();
+    private int depth;
+
+    private long duration = -1;
+    private String error;
+
+    Trace(String endpoint, long startedAt)
+    {
+        this.endpoint = endpoint;
+        this.startedAt = startedAt;
+    }
+
+    String getEndpoint() { return endpoint; }
+
+    long getStartedAtMillis() { return startedAtMillis; }
+
+    long getDuration() { return duration; }
+
+    String getError() { return error; }
+
+    synchronized Span begin(String name)
+    {
+        var span = new Span(this, name, depth++, System.nanoTime() - startedAt);
+        spans.add(span);
+
+        return span;
+    }
+
+    // for phases that ran before the trace existed
+    synchronized void add(String name, long start, long end)
+    {
+        var span = new Span(this, name, depth, start - startedAt);
+        span.duration = end - start;
+        spans.add(span);
+    }
+
+    synchronized void end(String error)
+    {
+        this.error = error;
+        duration = System.nanoTime() - startedAt;
+    }
+
+    // [{"name", "depth", "start", "duration"}], nanoseconds from the start of the request
+    synchronized String toJson()
+    {
+        var stringWriter = new StringWriter();
+
+        try (var jsonWriter = new JsonWriter(stringWriter))
+        {
+            jsonWriter.beginArray();
+
+            for (Span span : spans)
+            {
+                jsonWriter.beginObject();
+                jsonWriter.name("name").value(span.name);
+                jsonWriter.name("depth").value(span.depth);
+                jsonWriter.name("start").value(span.start);
+                jsonWriter.name("duration").value(span.duration);
+                jsonWriter.endObject();
+            }
+
+            jsonWriter.endArray();
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+
+        return stringWriter.toString();
+    }
+
+    private synchronized void close(Span span)
+    {
+        if (span.duration >= 0)
+            return;
+
+        span.duration = System.nanoTime() - startedAt - span.start;
+        depth--;
+    }
+}